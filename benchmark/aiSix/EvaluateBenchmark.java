@@ -0,0 +1,71 @@
+package aiSix;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluate里每个节点都要调用的热点方法
+ * 局面在整个测试中不变，每次调用的结果相同
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluateBenchmark {
+    @Param({Positions.OPENING, Positions.MIDGAME, Positions.LATE})
+    public String position;
+
+    private GameState state;
+    private Evaluate evaluate;
+    private final long[] candidates = new long[Evaluate.MY_REAL_VALUABLE_POSITION_NUM];
+    private int lastCol;
+    private int lastRow;
+
+    @Setup
+    public void setUp() {
+        state = Positions.load(position);
+        evaluate = new Evaluate(state, new TranspositionTable(16));
+        lastCol = state.getCol(state.getCount() - 1);
+        lastRow = state.getRow(state.getCount() - 1);
+    }
+
+    @Benchmark
+    public int evaluateGame() {
+        return evaluate.evaluateGame();
+    }
+
+    /**
+     * 落子或提子后更新最后一子周围的黑白价值
+     */
+    @Benchmark
+    public void updateBlackAndWhiteValue() {
+        evaluate.updateBlackAndWhiteValue(lastCol, lastRow);
+    }
+
+    @Benchmark
+    public int getTheMostValuablePositions() {
+        return evaluate.getTheMostValuablePositions(candidates);
+    }
+
+    /**
+     * 落子后判断是否连六
+     * ChessBoard.isWin已经改为调用位棋盘的连六判断，这里直接测试它
+     */
+    @Benchmark
+    public boolean isWin() {
+        return state.getBoard().isSix(lastCol, lastRow, GameState.colorOf(state.getCount() - 1));
+    }
+}
@@ -0,0 +1,50 @@
+package aiSix;
+
+/**
+ * 基准测试用的固定局面
+ * 取自AI自对弈的棋谱，按 列,行 的顺序依次落子，分开局、中局、残局三类，
+ * 每个局面都轮到一方下新的一步（两子），并且还没有分出胜负
+ */
+final class Positions {
+    static final String OPENING = "opening";
+    static final String MIDGAME = "midgame";
+    static final String LATE = "late";
+
+    private static final String OPENING_MOVES = "9,9 10,9 9,10 10,8 8,11";
+    //双方都没有连续冲棋的必胜，搜索不会被ThreatSearch直接跳过
+    private static final String MIDGAME_MOVES = "9,9 10,9 9,10 10,8 8,11 11,7 10,10 11,9 8,10 8,9 7,11 9,7 12,10 "
+            + "8,6 13,11 9,8 7,10 9,6 10,6 11,8 12,8 8,8 13,8 12,9 12,11 12,7 12,12 11,6 7,8";
+    private static final String LATE_MOVES = "9,9 10,9 9,10 10,8 8,11 11,7 10,10 11,9 8,10 8,9 7,11 9,7 12,10 "
+            + "8,6 13,11 9,8 7,10 9,6 10,6 11,8 12,8 8,8 13,8 12,9 12,11 12,7 12,12 11,6 7,8 7,6 6,9 6,6 6,10 "
+            + "9,5 8,7 8,4 8,5 11,13 10,14 14,10 9,15 11,3 10,4 12,2 7,7 9,3 9,4 9,2 11,5 5,9 5,10 7,5 5,7 "
+            + "4,8 4,9 3,8 7,9 4,6 4,7 4,5 4,10";
+
+    private Positions() {
+    }
+
+    /**
+     * @param name OPENING、MIDGAME或LATE
+     */
+    static GameState load(String name) {
+        String moves;
+        switch (name) {
+            case OPENING:
+                moves = OPENING_MOVES;
+                break;
+            case MIDGAME:
+                moves = MIDGAME_MOVES;
+                break;
+            case LATE:
+                moves = LATE_MOVES;
+                break;
+            default:
+                throw new IllegalArgumentException("没有这个局面：" + name);
+        }
+        GameState state = new GameState();
+        for (String move : moves.split(" ")) {
+            String[] xy = move.split(",");
+            state.makeMove(Integer.parseInt(xy[0]), Integer.parseInt(xy[1]));
+        }
+        return state;
+    }
+}
@@ -0,0 +1,62 @@
+package aiSix;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 固定深度的完整搜索
+ * 每次调用前清空置换表、重新构造评估器，保证每次搜索的工作量相同；
+ * 时间限制设得足够长，只由深度决定何时结束
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+    @Param({Positions.OPENING, Positions.MIDGAME, Positions.LATE})
+    public String position;
+
+    @Param({"2", "3", "4"})
+    public int depth;
+
+    private GameState state;
+    private TranspositionTable table;
+    private Evaluate evaluate;
+
+    @Setup
+    public void setUp() {
+        state = Positions.load(position);
+        //有连续冲棋必胜时评估器直接返回，不做Alpha-Beta搜索，测不出东西
+        if (new ThreatSearch(state.getBoard(), state.colorToMove()).findWin() != null) {
+            throw new IllegalStateException("局面" + position + "有连续冲棋必胜，不做完整搜索");
+        }
+        table = new TranspositionTable(16);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        table.clear();
+        evaluate = new Evaluate(state, table);
+        evaluate.setTimeLimit(Long.MAX_VALUE / 2);
+        evaluate.setMaxDepth(depth);
+    }
+
+    @Benchmark
+    public int[] getTheBestPosition() {
+        return evaluate.getTheBestPosition();
+    }
+}
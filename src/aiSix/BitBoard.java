@@ -0,0 +1,219 @@
+package aiSix;
+
+import java.util.Arrays;
+
+/**
+ * 位棋盘
+ * 黑白双方各用一个361位的位集合表示（按 行 * 19 + 列 的顺序打包在long[]里），
+ * 另外为水平、垂直、两条斜线四个方向各保存一份旋转后的副本：每条线占一个int，
+ * 线上第k个点对应第k位，这样扫描一条线只需要移位和掩码，不需要再逐格读二维数组。
+ */
+public class BitBoard {
+    public static final int SIZE = 19;//棋盘边长
+    public static final int CELLS = SIZE * SIZE;//格子总数
+    public static final int EMPTY = 0;
+    public static final int BLACK = 1;
+    public static final int WHITE = 2;
+
+    //方向，0：水平，1：垂直，2：左上到右下，3：右上到左下
+    public static final int HORIZONTAL = 0;
+    public static final int VERTICAL = 1;
+    public static final int DIAGONAL = 2;
+    public static final int ANTI_DIAGONAL = 3;
+    public static final int DIRECTIONS = 4;
+    public static final int DIAGONAL_NUM = SIZE * 2 - 1;//每个斜线方向的线数
+
+    private static final int WORDS = (CELLS + 63) / 64;
+
+    //每个格子在四个方向上所在的线序号和在线上的位置
+    static final int[][] LINE_INDEX = new int[DIRECTIONS][CELLS];
+    static final int[][] LINE_POS = new int[DIRECTIONS][CELLS];
+    //每条线上有效位的掩码
+    static final int[][] LINE_MASK = new int[DIRECTIONS][];
+    //每条线上每个位置对应的格子序号
+    static final int[][][] LINE_CELL = new int[DIRECTIONS][][];
+
+    static {
+        LINE_MASK[HORIZONTAL] = new int[SIZE];
+        LINE_MASK[VERTICAL] = new int[SIZE];
+        LINE_MASK[DIAGONAL] = new int[DIAGONAL_NUM];
+        LINE_MASK[ANTI_DIAGONAL] = new int[DIAGONAL_NUM];
+        LINE_CELL[HORIZONTAL] = new int[SIZE][SIZE];
+        LINE_CELL[VERTICAL] = new int[SIZE][SIZE];
+        LINE_CELL[DIAGONAL] = new int[DIAGONAL_NUM][SIZE];
+        LINE_CELL[ANTI_DIAGONAL] = new int[DIAGONAL_NUM][SIZE];
+        for (int col = 0; col < SIZE; col++) {
+            for (int row = 0; row < SIZE; row++) {
+                int cell = cell(col, row);
+                //水平线以行为序号，线上位置是列坐标
+                LINE_INDEX[HORIZONTAL][cell] = row;
+                LINE_POS[HORIZONTAL][cell] = col;
+                //垂直线以列为序号，线上位置是行坐标
+                LINE_INDEX[VERTICAL][cell] = col;
+                LINE_POS[VERTICAL][cell] = row;
+                //左上到右下，列减行不变，线上位置用列坐标
+                LINE_INDEX[DIAGONAL][cell] = col - row + SIZE - 1;
+                LINE_POS[DIAGONAL][cell] = col;
+                //右上到左下，列加行不变，线上位置用列坐标
+                LINE_INDEX[ANTI_DIAGONAL][cell] = col + row;
+                LINE_POS[ANTI_DIAGONAL][cell] = col;
+                for (int d = 0; d < DIRECTIONS; d++) {
+                    LINE_MASK[d][LINE_INDEX[d][cell]] |= 1 << LINE_POS[d][cell];
+                    LINE_CELL[d][LINE_INDEX[d][cell]][LINE_POS[d][cell]] = cell;
+                }
+            }
+        }
+    }
+
+    private final long[][] stones = new long[3][WORDS];//下标1：黑棋，2：白棋
+    private final int[][][] lines = new int[3][DIRECTIONS][];//旋转后的副本
+    private int count;//棋盘上的棋子数
+
+    public BitBoard() {
+        for (int color = BLACK; color <= WHITE; color++) {
+            for (int d = 0; d < DIRECTIONS; d++) {
+                lines[color][d] = new int[LINE_MASK[d].length];
+            }
+        }
+    }
+
+    /**
+     * 复制一个棋盘，搜索时在副本上落子，不影响界面上的棋盘
+     */
+    public BitBoard copy() {
+        BitBoard b = new BitBoard();
+        for (int color = BLACK; color <= WHITE; color++) {
+            System.arraycopy(stones[color], 0, b.stones[color], 0, WORDS);
+            for (int d = 0; d < DIRECTIONS; d++) {
+                System.arraycopy(lines[color][d], 0, b.lines[color][d], 0, lines[color][d].length);
+            }
+        }
+        b.count = count;
+        return b;
+    }
+
+    public static int cell(int col, int row) {
+        return row * SIZE + col;
+    }
+
+    public static int colOf(int cell) {
+        return cell % SIZE;
+    }
+
+    public static int rowOf(int cell) {
+        return cell / SIZE;
+    }
+
+    /**
+     * @return 该点的状态，0空，1黑棋，2白棋
+     */
+    public int get(int col, int row) {
+        int cell = cell(col, row);
+        if ((stones[BLACK][cell >>> 6] & (1L << cell)) != 0) return BLACK;
+        if ((stones[WHITE][cell >>> 6] & (1L << cell)) != 0) return WHITE;
+        return EMPTY;
+    }
+
+    public boolean isEmpty(int col, int row) {
+        int cell = cell(col, row);
+        return ((stones[BLACK][cell >>> 6] | stones[WHITE][cell >>> 6]) & (1L << cell)) == 0;
+    }
+
+    public boolean isEmpty(int cell) {
+        return ((stones[BLACK][cell >>> 6] | stones[WHITE][cell >>> 6]) & (1L << cell)) == 0;
+    }
+
+    /**
+     * 落子，调用前该点必须为空
+     */
+    public void put(int col, int row, int color) {
+        int cell = cell(col, row);
+        stones[color][cell >>> 6] |= 1L << cell;
+        for (int d = 0; d < DIRECTIONS; d++) {
+            lines[color][d][LINE_INDEX[d][cell]] |= 1 << LINE_POS[d][cell];
+        }
+        count++;
+    }
+
+    /**
+     * 提子，撤回之前下的棋子
+     */
+    public void remove(int col, int row) {
+        int cell = cell(col, row);
+        long bit = ~(1L << cell);
+        for (int color = BLACK; color <= WHITE; color++) {
+            if ((stones[color][cell >>> 6] & ~bit) != 0) {
+                stones[color][cell >>> 6] &= bit;
+                for (int d = 0; d < DIRECTIONS; d++) {
+                    lines[color][d][LINE_INDEX[d][cell]] &= ~(1 << LINE_POS[d][cell]);
+                }
+                count--;
+            }
+        }
+    }
+
+    /**
+     * 判断该颜色在某点落子后是否连成六子
+     * 该点可以是空位（假设在这里落子），也可以是刚下的棋子。
+     * 在经过该点的四条线上把连续的1逐次相与：b & (b >>> 1) 留下连续2子的起点，
+     * 再与上右移2位留下连续4子的起点，再来一次就是连续6子的起点
+     *
+     * @param color 1：黑方，2：白方
+     */
+    public boolean isSix(int col, int row, int color) {
+        int cell = cell(col, row);
+        for (int d = 0; d < DIRECTIONS; d++) {
+            int pos = LINE_POS[d][cell];
+            int b = lines[color][d][LINE_INDEX[d][cell]] | (1 << pos);
+            b &= b >>> 1;
+            b &= b >>> 2;
+            b &= b >>> 2;
+            //只看经过该点的连六，起点在 pos-5 到 pos 之间
+            if ((((b << 5) >>> pos) & 0x3F) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        for (int color = BLACK; color <= WHITE; color++) {
+            Arrays.fill(stones[color], 0L);
+            for (int d = 0; d < DIRECTIONS; d++) {
+                Arrays.fill(lines[color][d], 0);
+            }
+        }
+        count = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 取出某个方向上一条线的棋子位
+     *
+     * @param color     1：黑方，2：白方
+     * @param direction 方向，见 HORIZONTAL 等常量
+     * @param index     线的序号
+     * @return 第k位为1表示线上第k个点有该颜色的棋子
+     */
+    public int line(int color, int direction, int index) {
+        return lines[color][direction][index];
+    }
+
+    public static int lineCount(int direction) {
+        return LINE_MASK[direction].length;
+    }
+
+    public static int lineMask(int direction, int index) {
+        return LINE_MASK[direction][index];
+    }
+
+    /**
+     * @return 某个方向上第index条线的第pos个点的格子序号，pos必须在lineMask范围内
+     */
+    public static int lineCell(int direction, int index, int pos) {
+        return LINE_CELL[direction][index][pos];
+    }
+}
@@ -0,0 +1,133 @@
+package aiSix;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 离线生成开局库
+ * 从空棋盘开始自对弈很多局，每局的前几步里，每个没见过的局面都用引擎认真搜一遍，把搜出的着法存进开局库；
+ * 为了让库里也有对方不按引擎下的局面，每一步有一定概率改下已有棋子附近的随机位置。
+ * <p>
+ * 用法：java -cp aisix.jar aiSix.BookBuilder 输出文件 [局数 每局步数 每步毫秒 随机概率 随机种子]
+ */
+public class BookBuilder {
+    private static final int NEAR = 2;//随机着法落在已有棋子这么多格以内
+
+    private final Engine engine = new Engine();
+    private final Random random;
+    private final double deviation;//每一步改下随机位置的概率
+    //标准方向下的哈希值 -> 打包的着法
+    private final Map<Long, Integer> book = new HashMap<>();
+    private int maxStones;
+
+    /**
+     * @param timeLimit 每步的搜索时间，毫秒
+     * @param deviation 每一步改下随机位置的概率
+     * @param seed      随机种子，相同时生成的对局相同（搜索结果受时间影响除外）
+     */
+    public BookBuilder(long timeLimit, double deviation, long seed) {
+        engine.setTimeLimit(timeLimit);
+        engine.setThreads(Runtime.getRuntime().availableProcessors());
+        this.deviation = deviation;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 自对弈一局，把前steps步的局面加进开局库
+     */
+    public void playGame(int steps) {
+        GameState state = new GameState();
+        engine.newGame();
+        for (int step = 0; step < steps && !state.isGameOver(); step++) {
+            long[] hashes = OpeningBook.hashes(state);
+            int symmetry = Symmetry.canonical(hashes);
+            long key = hashes[symmetry];
+            if (!book.containsKey(key)) {
+                int[] position = engine.search(state);
+                if (position.length == 0) {
+                    return;
+                }
+                book.put(key, OpeningBook.encode(position, symmetry));
+                maxStones = Math.max(maxStones, state.getCount());
+                if (random.nextDouble() >= deviation) {
+                    play(state, position);
+                    continue;
+                }
+            } else if (random.nextDouble() >= deviation) {
+                //已经搜过的局面不用再搜，照着库里的着法下
+                play(state, OpeningBook.decode(book.get(key), symmetry));
+                continue;
+            }
+            int stones = state.stonesToPlace();
+            for (int i = 0; i < stones && !state.isGameOver(); i++) {
+                int cell = randomCell(state, random);
+                state.makeMove(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+            }
+        }
+    }
+
+    public int size() {
+        return book.size();
+    }
+
+    public void write(String file) throws IOException {
+        long[] keys = new long[book.size()];
+        int[] moves = new int[book.size()];
+        int n = 0;
+        for (Map.Entry<Long, Integer> e : book.entrySet()) {
+            keys[n] = e.getKey();
+            moves[n] = e.getValue();
+            n++;
+        }
+        OpeningBook.write(Paths.get(file), keys, moves, n, maxStones);
+    }
+
+    private static void play(GameState state, int[] position) {
+        for (int i = 0; i + 1 < position.length && !state.isGameOver(); i += 2) {
+            state.makeMove(position[i], position[i + 1]);
+        }
+    }
+
+    /**
+     * 在已有棋子附近随机选一个空位，空棋盘时在天元附近选
+     */
+    static int randomCell(GameState state, Random random) {
+        int center = BitBoard.SIZE / 2;
+        while (true) {
+            int col;
+            int row;
+            if (state.getCount() == 0) {
+                col = center + random.nextInt(2 * NEAR + 1) - NEAR;
+                row = center + random.nextInt(2 * NEAR + 1) - NEAR;
+            } else {
+                int i = random.nextInt(state.getCount());
+                col = state.getCol(i) + random.nextInt(2 * NEAR + 1) - NEAR;
+                row = state.getRow(i) + random.nextInt(2 * NEAR + 1) - NEAR;
+            }
+            if (state.isLegal(col, row)) {
+                return BitBoard.cell(col, row);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法：BookBuilder 输出文件 [局数 每局步数 每步毫秒 随机概率 随机种子]");
+            System.exit(1);
+        }
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+        long timeLimit = args.length > 3 ? Long.parseLong(args[3]) : 2000;
+        double deviation = args.length > 4 ? Double.parseDouble(args[4]) : 0.3;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+        BookBuilder builder = new BookBuilder(timeLimit, deviation, seed);
+        for (int g = 1; g <= games; g++) {
+            builder.playGame(steps);
+            System.out.printf("第%d局，开局库%d个局面%n", g, builder.size());
+        }
+        builder.write(args[0]);
+    }
+}
@@ -6,60 +6,55 @@ import java.awt.Graphics2D;
 import java.awt.RadialGradientPaint;
 import java.awt.RenderingHints;
 import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
 
 public class Chess {
     public static final int DIAMETER = ChessBoard.SPAN - 2;//直径 = 网格间距 - 自定义的间隔大小
-    private final int col; //棋子在棋盘中的x索引
-    private final int row; //棋子在棋盘中的y索引
-    private final Color color;//颜色
-    ChessBoard cb;
+    //棋子图片的边长，棋子画在图片正中
+    private static final int SPRITE_SIZE = DIAMETER + 1;
+    //黑白棋子各预先画一次，之后每次画棋子只是贴图
+    private static final BufferedImage BLACK_SPRITE = createSprite(Color.black);
+    private static final BufferedImage WHITE_SPRITE = createSprite(Color.white);
 
-    public Chess(ChessBoard cb, int col, int row, Color color) {
-        this.cb = cb;
-        this.col = col;
-        this.row = row;
-        this.color = color;
+    private Chess() {
     }
 
-    public int getCol() {
-        return col;
-    }
-
-    public int getRow() {
-        return row;
-    }
-
-    public Color getColor() {
-        return color;
-    }
-
-    public void draw(Graphics g) {
+    /**
+     * 在网格交叉点(col, row)画一个棋子
+     *
+     * @param color 1：黑棋，2：白棋
+     */
+    public static void draw(Graphics g, int col, int row, int color) {
         int xPos = col * ChessBoard.SPAN + ChessBoard.MARGIN;
         int yPos = row * ChessBoard.SPAN + ChessBoard.MARGIN;
+        g.drawImage(color == BitBoard.BLACK ? BLACK_SPRITE : WHITE_SPRITE,
+                xPos - SPRITE_SIZE / 2, yPos - SPRITE_SIZE / 2, null);
+    }
 
-        //Color colorOld = g.getColor();
-        //g.setColor(color);//设置颜色
-
-        Graphics2D g2d = (Graphics2D) g;
-        RadialGradientPaint paint = null;
-        int x = xPos + DIAMETER / 4;
-        int y = yPos - DIAMETER / 4;
+    /**
+     * 画一个棋子的图片，背景透明，径向渐变的高光在右上方
+     */
+    private static BufferedImage createSprite(Color color) {
+        BufferedImage image = new BufferedImage(SPRITE_SIZE, SPRITE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        //棋子中心在图片里的坐标，和棋盘上交叉点的位置对应
+        int center = SPRITE_SIZE / 2;
+        int x = center + DIAMETER / 4;
+        int y = center - DIAMETER / 4;
         float[] f = {0f, 1f};
         Color[] c = {Color.WHITE, Color.BLACK};
         if (color == Color.black) {
-            paint = new RadialGradientPaint(x, y, DIAMETER, f, c);
-        } else if (color == Color.white) {
-            paint = new RadialGradientPaint(x, y, DIAMETER * 2, f, c);
-
+            g2d.setPaint(new RadialGradientPaint(x, y, DIAMETER, f, c));
+        } else {
+            g2d.setPaint(new RadialGradientPaint(x, y, DIAMETER * 2, f, c));
         }
-        g2d.setPaint(paint);
         //以下两行使边界更均匀
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_DEFAULT);
 
-        Ellipse2D e = new Ellipse2D.Float(xPos - (float) DIAMETER / 2, yPos - (float) DIAMETER / 2, DIAMETER, DIAMETER);
-        g2d.fill(e);
-        //g.setColor(colorOld);
+        g2d.fill(new Ellipse2D.Float(center - (float) DIAMETER / 2, center - (float) DIAMETER / 2, DIAMETER, DIAMETER));
+        g2d.dispose();
+        return image;
     }
 
 }
@@ -4,58 +4,103 @@ import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics;
-import java.awt.Image;
-import java.awt.Toolkit;
+import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.net.URL;
-import java.util.Arrays;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 public class ChessBoard extends JPanel {
     public static final int MARGIN = 19;//边距
     public static final int SPAN = 25;//网格间距
-    public static final int ROWS = 18;//棋盘行数
-    public static final int COLS = 18;//棋盘列数
-    private final Image img;
+    public static final int ROWS = BitBoard.SIZE - 1;//棋盘行数
+    public static final int COLS = BitBoard.SIZE - 1;//棋盘列数
+    private final BufferedImage background;//背景图、网格线和星位，预先画好
 
-    Chess[] chessList = new Chess[(ROWS + 1) * (COLS + 1)];//初始每个数组元素为null
-    int chessCount = 0;//当前棋盘棋子的个数
+    //对局状态和AI都不依赖界面，棋盘只负责显示和接收鼠标
+    final GameState game = new GameState();
+    final Engine engine = new Engine();
 
     private boolean isGamming = false;    //是否正在游戏
     int computerColor;                   //计算机棋子颜色    1：黑棋  2：白棋
-    boolean isComputerGo;               //计算机先行？
-    boolean isBlack;                   //下一步棋是否该黑棋下子
+    boolean isComputerGo;               //这一步该计算机下？
     private final Six six;
 
-    int[][] boardStatus;
-
-    int left;
-    int top;
-    int right;
-    int bottom;
+    //计算机在后台线程思考，不阻塞界面
+    private final ExecutorService aiExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "aiSix-ai");
+        t.setDaemon(true);
+        return t;
+    });
+    private Evaluate thinking;      //正在思考的评估器，没有在思考时为null
+    private Future<?> thinkingTask; //正在思考的后台任务
+    private GameRecordWriter recorder;//保存棋谱，每落一子追加一次；不保存时为null
+
+    //对棋谱文件的一次写入
+    private interface RecordAction {
+        void write(GameRecordWriter recorder) throws IOException;
+    }
 
     public ChessBoard(Six six) {
         this.six = six;
-        boardStatus = new int[COLS + 1][ROWS + 1];
-        for (int i = 0; i <= COLS; i++) {
-            for (int j = 0; j <= ROWS; j++) {
-                boardStatus[i][j] = 0;  //0空，1黑棋， 2白棋
-            }
-        }
-        URL url = getClass().getClassLoader().getResource("board.jpg");
-        img = Toolkit.getDefaultToolkit().getImage(url);
+        background = createBackground();
         this.addMouseListener(new MouseMonitor());
         this.addMouseMotionListener(new MouseMotionMonitor());
+        //搜索线程数，默认用上所有核
+        engine.setThreads(Runtime.getRuntime().availableProcessors());
+        engine.setOpeningBook(OpeningBook.loadDefault());
+        engine.setWeights(Weights.loadDefault());
+        recorder = GameRecordWriter.openDefault();
     }
 
-    //画棋盘
-    public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        g.drawImage(img, 0, 0, this);
+    /**
+     * 写棋谱并马上落盘，程序中途退出也不丢已经下的棋；写失败时不再保存
+     */
+    private void record(RecordAction action) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            action.write(recorder);
+            recorder.flush();
+        } catch (IOException e) {
+            Logger.getLogger(ChessBoard.class.getName()).log(Level.WARNING, "棋谱保存失败", e);
+            recorder = null;
+        }
+    }
+
+    /**
+     * 把不变的部分（背景图、网格线和星位）预先画到离屏图像里，重绘时直接贴图
+     */
+    private BufferedImage createBackground() {
+        Dimension size = getPreferredSize();
+        BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        Graphics g = image.getGraphics();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, size.width, size.height);
+        URL url = getClass().getClassLoader().getResource("board.jpg");
+        try {
+            if (url != null) {
+                //ImageIO同步读完图片，Toolkit.getImage是异步的，画到离屏图像时可能还没读完
+                g.drawImage(ImageIO.read(url), 0, 0, null);
+            }
+        } catch (IOException ignored) {
+            //没有背景图也能下棋
+        }
+        g.setColor(Color.black);
         for (int i = 0; i <= ROWS; i++) {//画横线
             g.drawLine(MARGIN, MARGIN + i * SPAN, MARGIN + COLS * SPAN, MARGIN + i * SPAN);
         }
@@ -73,117 +118,67 @@ public class ChessBoard extends JPanel {
         g.fillRect(MARGIN + 3 * SPAN - 2, MARGIN + (ROWS - 3) * SPAN - 2, 5, 5);
         g.fillRect(MARGIN + (COLS / 2) * SPAN - 2, MARGIN + (ROWS - 3) * SPAN - 2, 5, 5);
         g.fillRect(MARGIN + (COLS - 3) * SPAN - 2, MARGIN + (ROWS - 3) * SPAN - 2, 5, 5);
-        for (int i = 0; i < chessCount; i++) {
-            chessList[i].draw(g);
-            if (i == chessCount - 1) {//如果是最后一个棋子
-                //网格交叉点x，y坐标
-                int xPos = chessList[i].getCol() * SPAN + MARGIN;
-                int yPos = chessList[i].getRow() * SPAN + MARGIN;
-                g.setColor(Color.red);
-                g.drawRect(xPos - Chess.DIAMETER / 2, yPos - Chess.DIAMETER / 2, Chess.DIAMETER, Chess.DIAMETER);
-            }
-        }
-    }
-
-    public Dimension getPreferredSize() {
-        return new Dimension(MARGIN * 2 + SPAN * COLS, MARGIN * 2 + SPAN * ROWS);
+        g.dispose();
+        return image;
     }
 
-    private boolean hasChess(int col, int row) {
-        for (int i = 0; i < chessCount; i++) {
-            Chess ch = chessList[i];
-            if (ch != null && ch.getCol() == col && ch.getRow() == row)
-                return true;
+    //画棋盘
+    //只画裁剪区域里的格子，落子和悔棋时只重绘变化的格子，重绘的开销不随棋子数增加
+    public void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(getPreferredSize());
+        }
+        g.drawImage(background, 0, 0, null);
+
+        //和裁剪区域相交的格子范围
+        int left = Math.max(0, (clip.x - MARGIN - SPAN / 2) / SPAN);
+        int right = Math.min(COLS, (clip.x + clip.width - MARGIN + SPAN / 2) / SPAN);
+        int top = Math.max(0, (clip.y - MARGIN - SPAN / 2) / SPAN);
+        int bottom = Math.min(ROWS, (clip.y + clip.height - MARGIN + SPAN / 2) / SPAN);
+        for (int col = left; col <= right; col++) {
+            for (int row = top; row <= bottom; row++) {
+                int color = game.get(col, row);
+                if (color != BitBoard.EMPTY) {
+                    Chess.draw(g, col, row, color);
+                }
+            }
         }
-        return false;
-    }
 
-    private boolean hasChess(int col, int row, Color color) {
-        for (int i = 0; i < chessCount; i++) {
-            Chess ch = chessList[i];
-            if (ch != null && ch.getCol() == col && ch.getRow() == row && ch.getColor() == color)
-                return true;
+        int chessCount = game.getCount();
+        if (chessCount > 0) {
+            //最后一个棋子
+            //网格交叉点x，y坐标
+            int xPos = game.getCol(chessCount - 1) * SPAN + MARGIN;
+            int yPos = game.getRow(chessCount - 1) * SPAN + MARGIN;
+            g.setColor(Color.red);
+            g.drawRect(xPos - Chess.DIAMETER / 2, yPos - Chess.DIAMETER / 2, Chess.DIAMETER, Chess.DIAMETER);
         }
-        return false;
     }
 
-    private boolean isWin(int col, int row) {
-        int continueCount = 1;//连续棋子的个数
-        Color c = isBlack ? Color.black : Color.white;
-
-        //横向向左寻找
-        for (int x = col - 1; x >= 0; x--) {
-            if (hasChess(x, row, c)) {
-                continueCount++;
-            } else
-                break;
-        }
-        //横向向右寻找
-        for (int x = col + 1; x <= COLS; x++) {
-            if (hasChess(x, row, c)) {
-                continueCount++;
-            } else
-                break;
-        }
-        if (continueCount >= 6) {
-            return true;
-        } else
-            continueCount = 1;
-
-        //继续另一种搜索纵向
-        //向上搜索
-        for (int y = row - 1; y >= 0; y--) {
-            if (hasChess(col, y, c)) {
-                continueCount++;
-            } else
-                break;
-        }
-        //纵向向下寻找
-        for (int y = row + 1; y <= ROWS; y++) {
-            if (hasChess(col, y, c))
-                continueCount++;
-            else
-                break;
+    /**
+     * 重绘一个格子：棋子和最后一子的红框都在以交叉点为中心、边长为网格间距的方块里
+     */
+    private void repaintCell(int col, int row) {
+        repaint(new Rectangle(MARGIN + col * SPAN - SPAN / 2 - 1, MARGIN + row * SPAN - SPAN / 2 - 1, SPAN + 2, SPAN + 2));
+    }
 
+    /**
+     * 重绘最后一子所在的格子，红框跟着最后一子移动
+     */
+    private void repaintLastChess() {
+        int count = game.getCount();
+        if (count > 0) {
+            repaintCell(game.getCol(count - 1), game.getRow(count - 1));
         }
-        if (continueCount >= 6)
-            return true;
-        else
-            continueCount = 1;
-
-
-        //继续另一种情况的搜索：右上到左下
-        //向右上寻找
-        for (int x = col + 1, y = row - 1; y >= 0 && x <= COLS; x++, y--) {
-            if (hasChess(x, y, c)) {
-                continueCount++;
-            } else break;
-        }
-        //向左下寻找
-        for (int x = col - 1, y = row + 1; x >= 0 && y <= ROWS; x--, y++) {
-            if (hasChess(x, y, c)) {
-                continueCount++;
-            } else break;
-        }
-        if (continueCount >= 6)
-            return true;
-        else continueCount = 1;
+    }
 
+    public Dimension getPreferredSize() {
+        return new Dimension(MARGIN * 2 + SPAN * COLS, MARGIN * 2 + SPAN * ROWS);
+    }
 
-        //继续另一种情况的搜索：左上到右下
-        //向左上寻找
-        for (int x = col - 1, y = row - 1; x >= 0 && y >= 0; x--, y--) {
-            if (hasChess(x, y, c))
-                continueCount++;
-            else break;
-        }
-        //右下寻找
-        for (int x = col + 1, y = row + 1; x <= COLS && y <= ROWS; x++, y++) {
-            if (hasChess(x, y, c))
-                continueCount++;
-            else break;
-        }
-        return continueCount >= 6;
+    private boolean hasChess(int col, int row) {
+        return game.get(col, row) != BitBoard.EMPTY;
     }
 
     class MouseMonitor extends MouseAdapter {
@@ -226,65 +221,131 @@ public class ChessBoard extends JPanel {
 
 
     public void restartGame() {
+        //停止上一局还没结束的思考
+        stopThinking();
         //清除棋子
-        Arrays.fill(chessList, null);
-        for (int i = 0; i <= COLS; i++) {
-            for (int j = 0; j <= ROWS; j++) {
-                boardStatus[i][j] = 0;
-            }
-        }
-        left = 7;
-        top = 7;
-        right = 7;
-        bottom = 7;
+        game.clear();
+        engine.newGame();
+        record(GameRecordWriter::startGame);
         //恢复游戏相关的变量值
-        isBlack = true;          //是否该黑方下棋
         isGamming = true;     //是否正在游戏
         isComputerGo = six.computerFirst.isSelected();  // 选中复选框，计算机先行
         computerColor = isComputerGo ? 1 : 2;              //如果计算机先行，则执黑棋
-        chessCount = 0; //当前棋盘棋子个数
 
         if (isComputerGo) {
             computerGo();   // 如果计算机先行，计算机先下一子
         }
         six.refreshStatus();
 
-        paintComponent(this.getGraphics());
+        repaint();
     }
 
+    /**
+     * 计算机下一步棋（一子或两子）
+     * 开局库里有这个局面时直接下；否则在后台线程搜索，每搜完一层在状态栏显示进度，搜完后回到事件线程落子
+     */
     private void computerGo() {
+        engine.stopPondering();
+        int[] book = engine.bookMove(game);
+        if (book != null) {
+            computerMoved(book, engine.getLastStats());
+            return;
+        }
+        Evaluate e = engine.prepare(game);
+        e.setProgressListener((depth, position) -> SwingUtilities.invokeLater(() -> {
+            if (thinking == e) {
+                six.displayThinking(depth, position);
+            }
+        }));
+        thinking = e;
+        thinkingTask = aiExecutor.submit(() -> {
+            //事件线程里只通知了后台思考停止，在这里等它退出
+            engine.awaitPondering();
+            int[] pos = e.getTheBestPosition();
+            SwingUtilities.invokeLater(() -> {
+                if (thinking != e) {
+                    //已经取消或者重新开始了，丢弃结果
+                    return;
+                }
+                thinking = null;
+                computerMoved(pos, e.getStats());
+            });
+        });
+    }
 
+    /**
+     * 在事件线程里下计算机这一步的一子或两子
+     *
+     * @param stats 这一步的统计，显示在状态栏
+     */
+    private void computerMoved(int[] pos, SearchStats stats) {
+        //一次下完这一步的一子或两子
+        for (int i = 0; i + 1 < pos.length && isGamming; i += 2) {
+            putChess(pos[i], pos[i + 1]);
+        }
+        if (pos.length == 0) {
+            //棋盘已经下满，和棋
+            isGamming = false;
+            record(r -> r.endGame(GameRecord.DRAW));
+            six.displayGameover();
+        } else if (isComputerGo && isGamming) {
+            computerGo();
+        } else if (isGamming) {
+            six.displayStats(stats);
+            startPondering();
+        }
+    }
 
-        //String msg= String.format("displayComputerGo执行后");
-        //JOptionPane.showMessageDialog(aiSix.ChessBoard.this, msg);
+    /**
+     * 轮到人下时在后台搜索人的局面，人落子后计算机再搜时置换表里已经有结果
+     */
+    private void startPondering() {
+        if (six.ponder.isSelected() && isGamming && !isComputerGo) {
+            engine.ponder(game);
+        }
+    }
 
-        Evaluate e = new Evaluate(this);
-        int[] pos = e.getTheBestPosition();
-        putChess(pos[0], pos[1], isBlack ? Color.black : Color.white);
-        if (isComputerGo && isGamming)
-            computerGo();
+    /**
+     * 取消正在进行的思考，等后台搜索真正退出后再返回
+     */
+    public void stopThinking() {
+        engine.stopPondering();
+        if (thinking == null) {
+            return;
+        }
+        thinking.stop();
+        thinking = null;
+        try {
+            thinkingTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+            //搜索出错时没有结果可用，直接放弃
+        }
     }
 
     public void manGo(int col, int row) {
-        putChess(col, row, isBlack ? Color.black : Color.white);
+        //落子前停止后台思考，后台的搜索用的是落子前的局面
+        engine.stopPondering();
+        putChess(col, row);
         if (isComputerGo && isGamming) {
             six.refreshStatus();
+        } else {
+            //这一步还要再下一子，接着搜下了一子之后的局面
+            startPondering();
         }
     }
 
-    public void putChess(int col, int row, Color color) {
-        Chess ch = new Chess(ChessBoard.this, col, row, color);
-        chessList[chessCount++] = ch;
-        boardStatus[col][row] = (color == Color.BLACK) ? 1 : 2;
-        paintComponent(this.getGraphics());
-
-        if (left > col) left = col;
-        if (top > row) top = row;
-        if (right < col) right = col;
-        if (bottom < row) bottom = row;
+    public void putChess(int col, int row) {
+        //原来最后一子的红框要擦掉
+        repaintLastChess();
+        game.makeMove(col, row);
+        repaintCell(col, row);
+        record(r -> r.stone(col, row));
 
         //如果胜出则给出提示信息，不能继续下棋
-        if (isWin(col, row)) {
+        if (game.getWinner() != 0) {
+            record(r -> r.endGame(game.getWinner()));
             six.displayGameover();
             String msg;
             if (!isComputerGo) {
@@ -294,45 +355,25 @@ public class ChessBoard extends JPanel {
             }
             JOptionPane.showMessageDialog(ChessBoard.this, msg);
             isGamming = false;
-        } else if (chessCount % 2 == 1) {
-            isBlack = !isBlack;
-            isComputerGo = !isComputerGo;
+        } else {
+            isComputerGo = game.colorToMove() == computerColor;
         }
 
     }
 
+    /**
+     * 悔棋
+     * 这一步只下了一子时撤回这一子，否则连同对方的上一步一起撤回三子
+     */
     public void goback() {
-        if (chessCount == 0)
-            return;
-        if (chessCount % 2 == 0) {
-            int i = chessList[chessCount - 1].getCol();
-            int j = chessList[chessCount - 1].getRow();
-            boardStatus[i][j] = 0;
-            chessList[chessCount - 1] = null;
-            chessCount--;
-            paintComponent(this.getGraphics());
-        } else {
-            int i = chessList[chessCount - 1].getCol();
-            int j = chessList[chessCount - 1].getRow();
-            boardStatus[i][j] = 0;
-            chessList[chessCount - 1] = null;
-            chessCount--;
-            paintComponent(this.getGraphics());
-
-            i = chessList[chessCount - 1].getCol();
-            j = chessList[chessCount - 1].getRow();
-            boardStatus[i][j] = 0;
-            chessList[chessCount - 1] = null;
-            chessCount--;
-            paintComponent(this.getGraphics());
-
-            i = chessList[chessCount - 1].getCol();
-            j = chessList[chessCount - 1].getRow();
-            boardStatus[i][j] = 0;
-            chessList[chessCount - 1] = null;
-            chessCount--;
-            paintComponent(this.getGraphics());
+        engine.stopPondering();
+        int stones = game.getCount() % 2 == 0 ? 1 : 3;
+        for (int i = 0; i < stones && game.getCount() > 0; i++) {
+            repaintLastChess();
+            game.unmakeMove();
+            record(GameRecordWriter::undo);
         }
+        repaintLastChess();
     }
 
 }
@@ -0,0 +1,255 @@
+package aiSix;
+
+/**
+ * AI引擎
+ * 为GameState里该下的一方搜索最佳着法，不依赖Swing和AWT。
+ * 置换表保存在引擎里，同一局的多步棋之间复用；换一局时调用newGame清空。
+ * 后台思考（ponder）：计算机下完后，在对方思考的时间里搜索对方的局面，
+ * 对方各种应着之后的局面都搜进置换表，对方真正落子后再搜索时大部分结果可以直接用。
+ * 后台思考只用一个线程，最多搜PONDER_TIME_FACTOR倍的每步思考时间，不占满对方的CPU。
+ */
+public class Engine {
+    static final int DEFAULT_TABLE_BITS = 20;//置换表默认2^20项
+    static final int PONDER_TIME_FACTOR = 10;//后台思考最多用每步思考时间的这么多倍
+
+    private final TranspositionTable table;
+    private long timeLimit = Evaluate.DEFAULT_TIME_LIMIT;//每步的思考时间，毫秒
+    private int threads = 1;//搜索线程数
+    private int maxDepth = Evaluate.MAX_SEARCH_DEPTH;//迭代加深的最大深度
+    private volatile Evaluate searching;//正在进行的搜索，没有时为null
+    private volatile SearchStats lastStats;//最近一次搜索的统计
+    private OpeningBook openingBook;//开局库，没有时为null
+    private Weights weights = Weights.DEFAULT;//估值参数
+    private Evaluate pondering;//后台思考的搜索，没有时为null
+    private Thread ponderThread;
+    private Thread stoppingThread;//已经通知停止、可能还没有退出的后台思考线程
+
+    /**
+     * 搜索进度的回调，在搜索线程里调用
+     */
+    public interface ProgressListener {
+        /**
+         * @param depth    刚搜完的深度
+         * @param position 这一层的最佳着法，每个子先x后y
+         */
+        void progress(int depth, int[] position);
+    }
+
+    public Engine() {
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * @param tableBits 置换表的大小为 2^tableBits 项
+     */
+    public Engine(int tableBits) {
+        table = new TranspositionTable(tableBits);
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * @param timeLimit 每步的思考时间，毫秒
+     */
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads 搜索线程数，多于一个时使用Lazy SMP并行搜索
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param maxDepth 迭代加深搜到这一层就停止，不再等时间用完；1到Evaluate.MAX_SEARCH_DEPTH之间
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(Evaluate.MAX_SEARCH_DEPTH, maxDepth));
+    }
+
+    public OpeningBook getOpeningBook() {
+        return openingBook;
+    }
+
+    /**
+     * @param openingBook 开局库，库里有的局面不搜索直接下；为null时不用开局库
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    public Weights getWeights() {
+        return weights;
+    }
+
+    /**
+     * @param weights 估值参数；置换表里的分值是按原来的参数算的，换参数后应该调用newGame
+     */
+    public void setWeights(Weights weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * 开始新的一局，停止后台思考，等它退出后再清空置换表，免得清空时还有线程在写表
+     */
+    public void newGame() {
+        stopPondering();
+        awaitPondering();
+        table.clear();
+    }
+
+    /**
+     * 搜索当前一方这一步的最佳着法，直到时间用完或者调用stop
+     *
+     * @return 这一步要下的一子或两子的坐标，先x后y；对局已经结束或者棋盘下满时返回空数组
+     */
+    public int[] search(GameState state) {
+        return search(state, null);
+    }
+
+    /**
+     * @param listener 每搜完一层通知一次，可以为null
+     */
+    public int[] search(GameState state, ProgressListener listener) {
+        stopPondering();
+        awaitPondering();
+        if (state.isGameOver()) {
+            return new int[0];
+        }
+        int[] book = bookMove(state);
+        if (book != null) {
+            return book;
+        }
+        Evaluate e = prepare(state);
+        e.setProgressListener(listener);
+        searching = e;
+        try {
+            return e.getTheBestPosition();
+        } finally {
+            searching = null;
+            lastStats = e.getStats();
+        }
+    }
+
+    /**
+     * @return 最近一次search的统计，还没有搜索过时为null
+     */
+    public SearchStats getLastStats() {
+        return lastStats;
+    }
+
+    /**
+     * 停止正在进行的搜索，search会尽快返回已经搜完的那一层的结果
+     */
+    public void stop() {
+        Evaluate e = searching;
+        if (e != null) {
+            e.stop();
+        }
+    }
+
+    /**
+     * 开始后台思考：在一个后台线程里搜索state，通常是对方该下的局面，直到调用stopPondering或者search，
+     * 或者用完PONDER_TIME_FACTOR倍的每步思考时间。
+     * 搜索的结果只留在置换表里。state之后可以继续落子，不影响后台的搜索
+     */
+    public synchronized void ponder(GameState state) {
+        stopPondering();
+        if (state.isGameOver()) {
+            return;
+        }
+        Evaluate e = prepare(state);
+        e.setThreads(1);
+        e.setTimeLimit(timeLimit > Long.MAX_VALUE / PONDER_TIME_FACTOR ? Long.MAX_VALUE : timeLimit * PONDER_TIME_FACTOR);
+        e.getStats().ponder = true;
+        Thread t = new Thread(e::getTheBestPosition, "aiSix-ponder");
+        t.setDaemon(true);
+        pondering = e;
+        ponderThread = t;
+        t.start();
+    }
+
+    /**
+     * 通知后台思考停止，不等后台线程退出，可以在事件线程里调用
+     * 后台线程停止后不再写置换表，很快就会退出；要独占CPU时再调用awaitPondering等它
+     */
+    public synchronized void stopPondering() {
+        if (pondering == null) {
+            return;
+        }
+        pondering.stop();
+        stoppingThread = ponderThread;
+        pondering = null;
+        ponderThread = null;
+    }
+
+    /**
+     * 等已经通知停止的后台思考线程真正退出，之后的搜索独占CPU；会阻塞到线程退出，后台搜索很快就会发现停止标志，等待的时间很短
+     */
+    public void awaitPondering() {
+        Thread t;
+        synchronized (this) {
+            t = stoppingThread;
+        }
+        if (t == null) {
+            return;
+        }
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized (this) {
+            //可能有几个线程同时在等，线程真正退出后才清掉
+            if (stoppingThread == t) {
+                stoppingThread = null;
+            }
+        }
+    }
+
+    public synchronized boolean isPondering() {
+        return pondering != null;
+    }
+
+    /**
+     * 在开局库里查这一步，查到时lastStats记为开局库着法
+     *
+     * @return 这一步要下的一子或两子的坐标；没有开局库或者库里没有这个局面时返回null
+     */
+    public int[] bookMove(GameState state) {
+        if (openingBook == null) {
+            return null;
+        }
+        int[] position = openingBook.lookup(state);
+        if (position != null) {
+            SearchStats stats = new SearchStats();
+            stats.bookMove = true;
+            lastStats = stats;
+        }
+        return position;
+    }
+
+    /**
+     * 为一个局面准备好评估器但不开始搜索，界面在事件线程里准备，在后台线程里搜索，随时可以取消
+     */
+    Evaluate prepare(GameState state) {
+        Evaluate e = new Evaluate(state, table, weights);
+        e.setTimeLimit(timeLimit);
+        e.setThreads(threads);
+        e.setMaxDepth(maxDepth);
+        return e;
+    }
+}
@@ -1,812 +1,1157 @@
 package aiSix;
 
+import java.util.Arrays;
 
 public class Evaluate {
     /*---------------------棋型价值-----------------------*/
     //将六子棋棋型分为连六、活五、眠五、活四、眠四、活三、朦胧三、眠三、活二、眠二
-    private static final int SIX = 500000;
-    private static final int HUO_FIVE = 50000;
-    private static final int MIAN_FIVE = 10000;
-    private static final int HUO_FOUR = 5000;
-    private static final int MIAN_FOUR = 1000;
-    private static final int HUO_THREE = 500;
-    private static final int MENGLONG_THREE = 300;
-    private static final int MIAN_THREE = 100;
-    private static final int HUO_TWO = 100;
-    private static final int MIAN_TWO = 50;
+    //这里是手工设定的默认值，实际用的分值来自Weights，连六的分值不能改
+    static final int SIX = 500000;
+    static final int HUO_FIVE = 50000;
+    static final int MIAN_FIVE = 10000;
+    static final int HUO_FOUR = 5000;
+    static final int MIAN_FOUR = 1000;
+    static final int HUO_THREE = 500;
+    static final int MENGLONG_THREE = 300;
+    static final int MIAN_THREE = 100;
+    static final int HUO_TWO = 100;
+    static final int MIAN_TWO = 50;
 
+    private static final int COLS = BitBoard.SIZE - 1;//最大的列坐标
+    private static final int ROWS = BitBoard.SIZE - 1;//最大的行坐标
     private static final int INFINITY = 10000000;//无穷大
-    private static final int SEARCH_DEPTH = 4;//搜索深度
-    private static final int MY_REAL_VALUABLE_POSITION_NUM = 10;//可选点的最多搜索数量
+    static final int MAX_SEARCH_DEPTH = 32;//迭代加深的最大搜索深度
+    static final int DEFAULT_TIME_LIMIT = 2000;//每步默认的思考时间，毫秒
+    private static final int TIME_CHECK_INTERVAL = 255;//每搜索这么多个节点看一次时间
+    static final int MY_REAL_VALUABLE_POSITION_NUM = 10;//可选点的最多搜索数量
+    static final int MY_REAL_VALUABLE_PAIR_NUM = 15;//每一步两子组合的最多搜索数量
+    static final int WIN = INFINITY / 2;//这一步就能连六的价值
+    static final int NO_CELL = (1 << 9) - 1;//着法里没有第二子
+    private static final int VALUE_RANGE = PatternTable.RANGE;//计算空位价值时前后各看的格数
+    private static final int NEIGHBOR_RANGE = 2;//离已有棋子这么多格以内的空位才作为可选点
+    private static final int KILLER_SLOTS = 2;//每层记住的杀手着法数
+    static final int HISTORY_LIMIT = 1000;//历史分超过这个值时全部减半，让早先的截断逐渐失去影响
+    private static final int ASPIRATION_WINDOW = MIAN_FOUR;//渴望窗口的初始半宽
+    private static final int ASPIRATION_GROWTH = 4;//分值落在窗口外时半宽放大的倍数
+    private static final int[] NO_SCORES = new int[PatternTable.PATTERNS];//只数棋型次数时用的分值表，全是0
 
-    private final ChessBoard chessBoard;// 输入的棋盘布局
-    private final int[][] blackValue;   // 保存每一空位下黑子的价值
-    private final int[][] whiteValue;   // 保存每一空位下白子的价值
+    //四个方向上列坐标和行坐标的增量，和BitBoard的方向一致：水平，垂直，左上到右下，右上到左下
+    private static final int[] DIRECTION_X = {1, 0, 1, 1};
+    private static final int[] DIRECTION_Y = {0, 1, 1, -1};
+
+    private final BitBoard board;       // 输入的棋盘布局的副本，搜索时在副本上落子
+    private final int computerColor;    // 计算机棋子颜色    1：黑棋  2：白棋
+    final int[] blackValue;             // 保存每一空位下黑子的价值，下标是格子序号
+    final int[] whiteValue;             // 保存每一空位下白子的价值
+    private final int[][] blackDirectionValue;// 每一空位下黑子在四个方向上各自的价值，四个加起来就是blackValue
+    private final int[][] whiteDirectionValue;// 每一空位下白子在四个方向上各自的价值
+    private final int[] patternScore;   // 按棋型查分值，下标是PatternTable的棋型
     private final int[][] staticValue;  // 保存每一点的位置价值，越靠中心，价值越大
+    private final int[] neighborCount;  // 每一格周围NEIGHBOR_RANGE格以内的棋子数
+    private final int[][] lineValue;    // 每条线对黑方的估值，下标是[方向][线序号]
+    private int boardValue;             // 所有线的估值之和，也就是整个局面对黑方的估值
+    private final int stonesToPlace;    // 这一步要下几个子，黑方第一步下一子，之后每步两子
+    private final int[][] moves;        // 每一层搜索的着法缓冲区，下标是剩余的搜索深度，搜索中不再分配内存
+    //生成着法时用的可选点缓冲区
+    private final long[] firstStones = new long[MY_REAL_VALUABLE_POSITION_NUM];
+    private final long[] secondStones = new long[MY_REAL_VALUABLE_POSITION_NUM];
+    private final long[] pairHeap = new long[MY_REAL_VALUABLE_PAIR_NUM];
+    private final int[][] killers;      // 每一层最近引起截断的着法，下标是剩余的搜索深度
+    final int[] history;        // 每一格的历史分，含这一格的着法引起截断时增加，排序着法时加到价值上
+    final int[] moveValues = new int[MY_REAL_VALUABLE_PAIR_NUM];// 最近一次生成的着法的棋型价值，和着法一一对应
+    boolean winFound;           // 最近一次生成着法时发现这一步就能连六
+    private final TranspositionTable table;// 置换表，跨多步棋复用
+    final long[] hashes;                // 当前局面按8种对称变换后的Zobrist哈希值，落子提子时增量更新
+
+    private long timeLimit = DEFAULT_TIME_LIMIT;//每步的思考时间，毫秒
+    private int threads = 1;            // 搜索线程数
+    private int maxDepth = MAX_SEARCH_DEPTH;// 迭代加深搜到这一层就停止
+    private long deadline;              // 这一步必须结束搜索的时刻
+    private int nodes;                  // 已经搜索的节点数
+    private volatile boolean stopped;   // 时间用完或者主线程已经搜完，正在退出搜索
+    int completedDepth;                 // 已经搜完的深度
+    int score;                          // 已经搜完的那一层根节点的分值，站在计算机一方看
+    private int[] position;             // 已经搜完的那一层的最佳位置
+    private Engine.ProgressListener progressListener;// 每搜完一层通知一次
+    private final SearchStats stats = new SearchStats();// 这一步搜索的统计
 
     /**
      * 构造函数
      * 对黑白价值、静态价值数组进行初始化
      *
-     * @param chessBoard 当前布局
+     * @param state 当前布局，计算机执该下的一方
+     * @param table 置换表，跨多步棋复用
+     */
+    public Evaluate(GameState state, TranspositionTable table) {
+        this(state, table, Weights.DEFAULT);
+    }
+
+    /**
+     * @param weights 棋型分值和位置价值的倍数
      */
-    public Evaluate(ChessBoard chessBoard) {
+    public Evaluate(GameState state, TranspositionTable table, Weights weights) {
         //当前布局
-        this.chessBoard = chessBoard;
+        this.board = state.getBoard().copy();
+        this.computerColor = state.colorToMove();
+        this.table = table;
+        this.hashes = new long[Symmetry.COUNT];
+        Symmetry.hashes(board, hashes);
+        this.patternScore = weights.patternScores();
 
-        blackValue = new int[ChessBoard.COLS + 1][ChessBoard.ROWS + 1];
-        whiteValue = new int[ChessBoard.COLS + 1][ChessBoard.ROWS + 1];
-        staticValue = new int[ChessBoard.COLS + 1][ChessBoard.ROWS + 1];
+        blackValue = new int[BitBoard.CELLS];
+        whiteValue = new int[BitBoard.CELLS];
+        blackDirectionValue = new int[BitBoard.DIRECTIONS][BitBoard.CELLS];
+        whiteDirectionValue = new int[BitBoard.DIRECTIONS][BitBoard.CELLS];
+        staticValue = new int[COLS + 1][ROWS + 1];
+        neighborCount = new int[BitBoard.CELLS];
+        moves = new int[MAX_SEARCH_DEPTH + 1][MY_REAL_VALUABLE_PAIR_NUM];
+        killers = new int[MAX_SEARCH_DEPTH + 1][KILLER_SLOTS];
+        for (int[] k : killers) {
+            Arrays.fill(k, TranspositionTable.NO_MOVE);
+        }
+        history = new int[BitBoard.CELLS];
+        stonesToPlace = state.stonesToPlace();
 
-        //黑白价值
-        //初始都是0
-        for (int i = 0; i <= ChessBoard.COLS; i++) {
-            for (int j = 0; j <= ChessBoard.ROWS; j++) {
-                blackValue[i][j] = 0;
-                whiteValue[i][j] = 0;
+        //周围的棋子数
+        for (int i = 0; i <= COLS; i++) {
+            for (int j = 0; j <= ROWS; j++) {
+                if (!board.isEmpty(i, j)) {
+                    updateNeighborCount(i, j, 1);
+                }
             }
         }
 
+        //黑白价值
+        //对整个棋盘算一次，之后随落子提子增量更新
+        initBlackAndWhiteValue();
+
+        //局面的静态估值，同样增量更新
+        lineValue = new int[BitBoard.DIRECTIONS][];
+        initLineValue();
+
         //静态价值
         //对每一点的价值进行初始化，越靠中心价值越大
-        for (int i = 0; i <= ChessBoard.COLS / 2; i++) {
-            for (int j = 0; j <= ChessBoard.ROWS / 2; j++) {
-                staticValue[i][j] = Math.min(i, j);//第一象限内，价值就是行列坐标只
-                staticValue[ChessBoard.COLS - i][j] = staticValue[i][j];//对称
-                staticValue[i][ChessBoard.ROWS - j] = staticValue[i][j];
-                staticValue[ChessBoard.COLS - i][ChessBoard.ROWS - j] = staticValue[i][j];
+        for (int i = 0; i <= COLS / 2; i++) {
+            for (int j = 0; j <= ROWS / 2; j++) {
+                staticValue[i][j] = Math.min(i, j) * weights.get(Weights.CENTER);//第一象限内，价值就是行列坐标只乘以倍数
+                staticValue[COLS - i][j] = staticValue[i][j];//对称
+                staticValue[i][ROWS - j] = staticValue[i][j];
+                staticValue[COLS - i][ROWS - j] = staticValue[i][j];
             }
         }
     }
 
+    /**
+     * 给并行搜索的辅助线程复制一个评估器
+     * 每个线程有自己的棋盘副本和黑白价值，只共用置换表、棋型分值和静态价值
+     *
+     * @param main 主线程的评估器
+     */
+    private Evaluate(Evaluate main) {
+        this.board = main.board.copy();
+        this.computerColor = main.computerColor;
+        this.table = main.table;
+        this.hashes = main.hashes.clone();
+        this.patternScore = main.patternScore;
+        this.staticValue = main.staticValue;
+        this.deadline = main.deadline;
+        this.maxDepth = main.maxDepth;
+        blackValue = main.blackValue.clone();
+        whiteValue = main.whiteValue.clone();
+        neighborCount = main.neighborCount.clone();
+        boardValue = main.boardValue;
+        lineValue = new int[BitBoard.DIRECTIONS][];
+        moves = new int[MAX_SEARCH_DEPTH + 1][MY_REAL_VALUABLE_PAIR_NUM];
+        killers = new int[MAX_SEARCH_DEPTH + 1][KILLER_SLOTS];
+        for (int[] k : killers) {
+            Arrays.fill(k, TranspositionTable.NO_MOVE);
+        }
+        history = new int[BitBoard.CELLS];
+        stonesToPlace = main.stonesToPlace;
+        blackDirectionValue = new int[BitBoard.DIRECTIONS][];
+        whiteDirectionValue = new int[BitBoard.DIRECTIONS][];
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            blackDirectionValue[d] = main.blackDirectionValue[d].clone();
+            whiteDirectionValue[d] = main.whiteDirectionValue[d].clone();
+            lineValue[d] = main.lineValue[d].clone();
+        }
+    }
+
+    /**
+     * 设置每步的思考时间
+     *
+     * @param timeLimit 毫秒，Long.MAX_VALUE表示不限时间，一直搜到调用stop
+     */
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * 设置搜索线程数
+     * 多于一个线程时使用Lazy SMP：辅助线程在各自的棋盘副本上做同样的迭代加深，
+     * 通过共用的置换表互相提供结果，搜得更深
+     *
+     * @param threads 线程数，至少为1
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 设置迭代加深的最大深度，搜完这一层就返回，不再等时间用完
+     *
+     * @param maxDepth 1到MAX_SEARCH_DEPTH之间
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(MAX_SEARCH_DEPTH, maxDepth));
+    }
+
+    public void setProgressListener(Engine.ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @return 最近一次getTheBestPosition的搜索统计
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 从其他线程取消搜索，getTheBestPosition会尽快返回已经搜完的那一层的结果
+     */
+    public void stop() {
+        stopped = true;
+    }
+
     /**
      * 获取计算机的最佳下棋位置
      * 评估函数的入口
+     * 迭代加深：从深度1开始逐层加深，直到时间用完，返回最后一次搜完的那一层的结果；
+     * 每一层搜完后最好的着法排在最前面，下一层先搜它；从第二层起以上一层的分值为中心开渴望窗口
      *
-     * @return 最佳位置的坐标，先x后y
+     * @return 这一步要下的棋子坐标，先x后y，下两子时依次是两个子的坐标
      */
     int[] getTheBestPosition() {
-        //最佳位置的坐标，先x后y
-        int[] position = new int[2];
-
-        //获取所有可选点
-        //获取每个格子的价值
-        updateBlackAndWhiteValue();
-        //按照价值排序产生可选点
-        int[][] valuablePositions = getTheMostValuablePositions();
-
-        //首先假设是最差情况
-        int maxValue = -INFINITY;
-        //遍历所有可选点，计算价值
-        for (int[] valuablePosition : valuablePositions) {
-            int x = valuablePosition[0];
-            int y = valuablePosition[1];
-            int v = valuablePosition[2];//价值
-
-            //如果价值已经比连续的六还大，就直接下
-            if (v >= SIX) {
-                //说明已经连六
-                position[0] = x;
-                position[1] = y;
-                break;
+        long start = System.currentTimeMillis();
+        int[] result = search(start);
+        if (SearchStats.ENABLED) {
+            stats.timeMillis = System.currentTimeMillis() - start;
+            SearchStats.LOG.fine(stats::toLogString);
+        }
+        return result;
+    }
+
+    private int[] search(long start) {
+        //不限时间时start + timeLimit会溢出
+        deadline = timeLimit > Long.MAX_VALUE - start ? Long.MAX_VALUE : start + timeLimit;
+        table.newSearch();
+
+        //先用威胁空间搜索找连续冲棋的必胜，找到就不用再做Alpha-Beta搜索
+        if (stonesToPlace == 2) {
+            //冲棋的分支可能很多，也要按时结束、能被stop打断
+            ThreatSearch threatSearch = new ThreatSearch(board, computerColor);
+            threatSearch.setDeadline(deadline);
+            threatSearch.setStopFlag(() -> stopped);
+            int[] win = threatSearch.findWin();
+            if (win != null) {
+                stats.threatWin = true;
+                completedDepth = MAX_SEARCH_DEPTH;
+                position = win;
+                return position;
             }
+        }
 
-            //假设先下了这一步棋
-            chessBoard.boardStatus[x][y] = chessBoard.computerColor;
-
-            //改变LEFT、TOP等值
-            int oldLeft = chessBoard.left;
-            int oldTop = chessBoard.top;
-            int oldRight = chessBoard.right;
-            int oldBottom = chessBoard.bottom;
-            //边界检测
-            if (chessBoard.left > x) chessBoard.left = x;
-            if (chessBoard.top > y) chessBoard.top = y;
-            if (chessBoard.right < x) chessBoard.right = x;
-            if (chessBoard.bottom < y) chessBoard.bottom = y;
-
-            //调用Alpha-Beta算法
-            int value = min(SEARCH_DEPTH, -INFINITY, INFINITY);
+        if (threads == 1) {
+            return iterate(1);
+        }
 
-            //撤回了之前下的棋子
-            chessBoard.boardStatus[x][y] = 0;
-            //将LEFT、TOP等值恢复原样
-            chessBoard.left = oldLeft;
-            chessBoard.top = oldTop;
-            chessBoard.right = oldRight;
-            chessBoard.bottom = oldBottom;
+        //启动辅助线程，一半的辅助线程从深度2开始，让各线程错开搜索的层数
+        Evaluate[] helpers = new Evaluate[threads - 1];
+        Thread[] helperThreads = new Thread[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            Evaluate helper = new Evaluate(this);
+            int startDepth = 1 + (i + 1) % 2;
+            helpers[i] = helper;
+            helperThreads[i] = new Thread(() -> helper.iterate(startDepth), "aiSix-search-" + (i + 1));
+            helperThreads[i].setDaemon(true);
+            helperThreads[i].start();
+        }
 
-            //如果value比最大值还要大
-            if (value > maxValue) {
-                maxValue = value;
-                position[0] = x;
-                position[1] = y;
+        int[] position = iterate(1);
+        int bestDepth = completedDepth;
+
+        //主线程搜完后通知辅助线程停止
+        for (Evaluate helper : helpers) {
+            helper.stopped = true;
+        }
+        for (int i = 0; i < helpers.length; i++) {
+            try {
+                helperThreads[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            //使用搜得最深的那个线程的结果
+            if (helpers[i].completedDepth > bestDepth) {
+                bestDepth = helpers[i].completedDepth;
+                position = helpers[i].position;
+                score = helpers[i].score;
+            }
+            if (SearchStats.ENABLED) {
+                stats.add(helpers[i].stats);
+                stats.depth = Math.max(stats.depth, helpers[i].stats.depth);
             }
         }
-
         return position;
     }
 
     /**
-     * Alpha-Beta算法的min
+     * 迭代加深搜索
      *
-     * @param depth 搜索的深度
-     * @return 最优价值
+     * @param startDepth 开始的深度
+     * @return 这一步要下的棋子坐标
      */
-    private int min(int depth, int alpha, int beta) {
-        if (depth == 0) {
-            //如果搜索到最底层，直接返回当前的估值。
-            return evaluateGame();
+    private int[] iterate(int startDepth) {
+        nodes = 0;
+        completedDepth = 0;
+
+        //生成根节点的着法
+        int[] rootMoves = new int[MY_REAL_VALUABLE_PAIR_NUM];
+        int count = generateMoves(computerColor, stonesToPlace, rootMoves);
+        if (count == 0) {
+            //棋盘已经下满
+            position = new int[0];
+            return position;
+        }
+
+        //还没有搜完任何一层时，先用价值最大的着法
+        position = toPosition(rootMoves[0]);
+
+        //已经可以连六，或者只有一种下法，就直接下
+        if (winFound || count == 1) {
+            completedDepth = MAX_SEARCH_DEPTH;
+            return position;
+        }
+
+        //每一层搜出的分值。最后一步是谁下的对估值影响很大，相邻两层的分值会来回跳，
+        //所以渴望窗口以隔一层、同样由计算机下最后一步的那一层的分值为中心
+        int[] scores = new int[MAX_SEARCH_DEPTH + 1];
+        int score = 0;
+        for (int depth = startDepth; depth <= maxDepth; depth++) {
+            int startNodes = nodes;
+            if (depth == startDepth) {
+                score = searchRoot(depth, rootMoves, count, -INFINITY, INFINITY);
+            } else {
+                score = aspirationSearch(depth, rootMoves, count, scores[depth - 2 >= startDepth ? depth - 2 : depth - 1]);
+            }
+            scores[depth] = score;
+            if (SearchStats.ENABLED) {
+                stats.nodesPerDepth[depth] += nodes - startNodes;
+                stats.nodes = nodes;
+            }
+            if (stopped) {
+                //这一层没有搜完，结果不可信
+                break;
+            }
+            position = toPosition(rootMoves[0]);
+            completedDepth = depth;
+            this.score = score;
+            stats.depth = depth;
+            if (progressListener != null) {
+                progressListener.progress(depth, position);
+            }
+            if (score >= SIX || score <= -SIX) {
+                //胜负已分，再搜也不会改变结果
+                break;
+            }
         }
 
-        updateBlackAndWhiteValue();
+        return position;
+    }
 
-        int[][] valuablePositions = getTheMostValuablePositions();
+    /**
+     * 渴望窗口：以之前搜出的分值为中心开一个小窗口搜索，窗口越小截断越多；
+     * 这一层的分值落在窗口外时把那一边的窗口放宽再搜，直到分值落在窗口内
+     *
+     * @param previous 窗口的中心，之前某一层搜出的分值
+     * @return 这一层的分值
+     */
+    private int aspirationSearch(int depth, int[] rootMoves, int count, int previous) {
+        if (previous >= SIX || previous <= -SIX) {
+            return searchRoot(depth, rootMoves, count, -INFINITY, INFINITY);
+        }
+        int delta = ASPIRATION_WINDOW;
+        int alpha = previous - delta;
+        int beta = previous + delta;
+        while (true) {
+            int score = searchRoot(depth, rootMoves, count, alpha, beta);
+            if (stopped) {
+                return score;
+            }
+            if (score <= alpha && alpha > -INFINITY) {
+                //真实值不大于alpha，往下放宽
+                delta *= ASPIRATION_GROWTH;
+                alpha = delta >= SIX ? -INFINITY : previous - delta;
+            } else if (score >= beta && beta < INFINITY) {
+                //真实值不小于beta，往上放宽
+                delta *= ASPIRATION_GROWTH;
+                beta = delta >= SIX ? INFINITY : previous + delta;
+            } else {
+                return score;
+            }
+            if (SearchStats.ENABLED) {
+                stats.aspirationFails++;
+            }
+        }
+    }
 
-        for (int[] valuablePosition : valuablePositions) {
-            chessBoard.boardStatus[valuablePosition[0]][valuablePosition[1]] = chessBoard.computerColor == 1 ? 2 : 1;
-            int oldLeft = chessBoard.left;
-            int oldTop = chessBoard.top;
-            int oldRight = chessBoard.right;
-            int oldBottom = chessBoard.bottom;
-            if (chessBoard.left > valuablePosition[0]) chessBoard.left = valuablePosition[0];
-            if (chessBoard.top > valuablePosition[1]) chessBoard.top = valuablePosition[1];
-            if (chessBoard.right < valuablePosition[0]) chessBoard.right = valuablePosition[0];
-            if (chessBoard.bottom < valuablePosition[1]) chessBoard.bottom = valuablePosition[1];
+    /**
+     * 按指定的深度在(alpha, beta)窗口内搜索根节点的着法
+     * 找到更好的着法时把它移到最前面，之前最好的着法依次后移，下一层按这个顺序搜
+     *
+     * @param depth     搜索的深度，一层是一方完整的一步
+     * @param rootMoves 根节点的着法
+     * @param count     着法数
+     * @return 最大的价值，不大于alpha时返回alpha，不小于beta时返回beta
+     */
+    private int searchRoot(int depth, int[] rootMoves, int count, int alpha, int beta) {
+        //遍历所有着法，计算价值
+        for (int i = 0; i < count; i++) {
+            int move = rootMoves[i];
+            //假设先下了这一步棋
+            placeMove(move, computerColor);
 
-            int value = max(depth - 1, alpha, beta);
+            int value = searchChild(i, depth - 1, alpha, beta, 3 - computerColor);
 
-            chessBoard.boardStatus[valuablePosition[0]][valuablePosition[1]] = 0;
-            chessBoard.left = oldLeft;
-            chessBoard.top = oldTop;
-            chessBoard.right = oldRight;
-            chessBoard.bottom = oldBottom;
+            //撤回了之前下的棋子
+            unplaceMove(move);
 
-            if (value < beta) {
-                beta = value;
+            if (stopped) {
+                break;
+            }
+            if (value > alpha) {
+                alpha = value;
+                bringForward(rootMoves, count, 0, move);
                 if (alpha >= beta) {
-                    return alpha;
+                    return beta;
                 }
             }
         }
-        return beta;
+        return alpha;
+    }
+
+    /**
+     * 每隔一定节点数检查一次是否超时
+     *
+     * @return 是否应该停止搜索
+     */
+    private boolean isTimeUp() {
+        if ((++nodes & TIME_CHECK_INTERVAL) == 0 && System.currentTimeMillis() >= deadline) {
+            stopped = true;
+        }
+        return stopped;
     }
 
     /**
-     * Alpha-Beta算法的max
+     * 主要变例搜索（PVS）
+     * 负极大值形式，分值总是站在该下的一方看：对方的分值取负就是自己的分值。
+     * 排在第一的着法多半是最好的，用完整窗口搜；之后的着法只用零窗口证明它们不比alpha好，
+     * 证明不了时才用完整窗口重搜
      *
      * @param depth 搜索的深度
-     * @return 最优价值
+     * @param color 该下的一方，下两子
+     * @return 对color的最优价值，不大于alpha时返回alpha，不小于beta时返回beta
      */
-    private int max(int depth, int alpha, int beta) {
+    private int pvs(int depth, int alpha, int beta, int color) {
+        if (isTimeUp()) {
+            return 0;
+        }
         if (depth == 0) {
             //如果搜索到最底层，直接返回当前的估值。
-            return evaluateGame();
+            if (SearchStats.ENABLED) {
+                stats.evaluations++;
+            }
+            return color == computerColor ? evaluateGame() : -evaluateGame();
         }
 
-        updateBlackAndWhiteValue();
+        //先查置换表，同样的局面已经搜得够深就直接用
+        //表里按标准方向存，对称的局面共用一项，着法要在标准方向和当前方向之间变换
+        int symmetry = Symmetry.canonical(hashes);
+        long key = hashes[symmetry];
+        long entry = table.probe(key);
+        if (SearchStats.ENABLED) {
+            stats.tableProbes++;
+            stats.tableHits += entry != 0 ? 1 : 0;
+        }
+        if (isTableCutoff(entry, depth, alpha, beta)) {
+            return TranspositionTable.score(entry);
+        }
 
-        int[][] valuablePositions = getTheMostValuablePositions();
+        int[] moves = this.moves[depth];
+        int count = generateMoves(color, 2, moves);
+        if (winFound) {
+            //这一步就能连六
+            return WIN;
+        }
+        if (count == 0) {
+            //棋盘已经下满，和棋是准确值，不是窗口的边界
+            table.store(key, depth, 0, TranspositionTable.EXACT, TranspositionTable.NO_MOVE);
+            return 0;
+        }
+        int tableMove = entry == 0 ? TranspositionTable.NO_MOVE
+                : Symmetry.transformMove(TranspositionTable.move(entry), Symmetry.inverse(symmetry));
+        orderMoves(moves, count, tableMove, depth);
 
-        for (int[] valuablePosition : valuablePositions) {
-            chessBoard.boardStatus[valuablePosition[0]][valuablePosition[1]] = chessBoard.computerColor;
-            int oldLeft = chessBoard.left;
-            int oldTop = chessBoard.top;
-            int oldRight = chessBoard.right;
-            int oldBottom = chessBoard.bottom;
-            if (chessBoard.left > valuablePosition[0]) chessBoard.left = valuablePosition[0];
-            if (chessBoard.top > valuablePosition[1]) chessBoard.top = valuablePosition[1];
-            if (chessBoard.right < valuablePosition[0]) chessBoard.right = valuablePosition[0];
-            if (chessBoard.bottom < valuablePosition[1]) chessBoard.bottom = valuablePosition[1];
+        int oldAlpha = alpha;
+        int bestMove = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            placeMove(moves[i], color);
 
-            int value = min(depth - 1, alpha, beta);
+            int value = searchChild(i, depth - 1, alpha, beta, 3 - color);
 
-            chessBoard.boardStatus[valuablePosition[0]][valuablePosition[1]] = 0;
-            chessBoard.left = oldLeft;
-            chessBoard.top = oldTop;
-            chessBoard.right = oldRight;
-            chessBoard.bottom = oldBottom;
+            unplaceMove(moves[i]);
+            if (stopped) {
+                //超时，放弃这个节点，结果不能存进置换表
+                return 0;
+            }
 
             if (value > alpha) {
                 alpha = value;
+                bestMove = moves[i];
                 if (alpha >= beta) {
+                    //真实值不小于beta
+                    if (SearchStats.ENABLED) {
+                        stats.recordCutoff(i);
+                    }
+                    updateKillersAndHistory(bestMove, depth);
+                    table.store(key, depth, beta, TranspositionTable.LOWER, Symmetry.transformMove(bestMove, symmetry));
                     return beta;
                 }
             }
         }
+        table.store(key, depth, alpha, alpha > oldAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER,
+                Symmetry.transformMove(bestMove, symmetry));
         return alpha;
     }
 
+    /**
+     * 搜索第index个着法下完之后的局面，返回对下这个着法一方的价值
+     * 第一个着法用完整窗口；之后的先用零窗口(alpha, alpha + 1)，
+     * 结果落在alpha和beta之间说明它可能更好，再用完整窗口重搜出准确值
+     *
+     * @param color 下完这个着法后该下的一方
+     */
+    private int searchChild(int index, int depth, int alpha, int beta, int color) {
+        if (index == 0) {
+            return -pvs(depth, -beta, -alpha, color);
+        }
+        int value = -pvs(depth, -alpha - 1, -alpha, color);
+        if (value > alpha && value < beta && !stopped) {
+            if (SearchStats.ENABLED) {
+                stats.researches++;
+            }
+            value = -pvs(depth, -beta, -alpha, color);
+        }
+        return value;
+    }
+
+    /**
+     * 置换表里的结果能否直接使用
+     *
+     * @param entry 置换表查到的数据，0表示没有查到
+     * @param depth 还要搜索的深度，保存的结果至少要搜得这么深
+     */
+    private boolean isTableCutoff(long entry, int depth, int alpha, int beta) {
+        if (entry == 0 || TranspositionTable.depth(entry) < depth) {
+            return false;
+        }
+        int score = TranspositionTable.score(entry);
+        switch (TranspositionTable.bound(entry)) {
+            case TranspositionTable.EXACT:
+                return true;
+            case TranspositionTable.LOWER:
+                return score >= beta;
+            case TranspositionTable.UPPER:
+                return score <= alpha;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 着法排序：置换表里记录的最佳着法最先搜，其次是这一层的杀手着法，
+     * 其余的按棋型价值加上历史分降序。历史分只调整顺序，选哪些着法只看棋型价值
+     *
+     * @param moves 刚由generateMoves生成的着法，价值在moveValues里
+     */
+    void orderMoves(int[] moves, int count, int tableMove, int depth) {
+        for (int i = 0; i < count; i++) {
+            int second = secondCell(moves[i]);
+            moveValues[i] += history[firstCell(moves[i])] + (second == NO_CELL ? 0 : history[second]);
+        }
+        //着法很少，插入排序，价值相同时保持生成的顺序
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int value = moveValues[i];
+            int j = i;
+            for (; j > 0 && moveValues[j - 1] < value; j--) {
+                moves[j] = moves[j - 1];
+                moveValues[j] = moveValues[j - 1];
+            }
+            moves[j] = move;
+            moveValues[j] = value;
+        }
+        int front = bringForward(moves, count, 0, tableMove);
+        for (int k = 0; k < KILLER_SLOTS; k++) {
+            front = bringForward(moves, count, front, killers[depth][k]);
+        }
+    }
+
+    /**
+     * 在front及之后找到move，把它移到front，中间的着法依次后移
+     *
+     * @return 下一个要填的位置
+     */
+    private static int bringForward(int[] moves, int count, int front, int move) {
+        if (move == TranspositionTable.NO_MOVE) {
+            return front;
+        }
+        for (int i = front; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, front, moves, front + 1, i - front);
+                moves[front] = move;
+                return front + 1;
+            }
+        }
+        return front;
+    }
+
+    /**
+     * 一个着法引起了截断：记为这一层的杀手着法，并给它的每一子加上历史分，深度越深加得越多
+     */
+    void updateKillersAndHistory(int move, int depth) {
+        int[] k = killers[depth];
+        if (k[0] != move) {
+            k[1] = k[0];
+            k[0] = move;
+        }
+        int bonus = depth * depth;
+        int first = firstCell(move);
+        int second = secondCell(move);
+        history[first] += bonus;
+        if (second != NO_CELL) {
+            history[second] += bonus;
+        }
+        if (history[first] > HISTORY_LIMIT || (second != NO_CELL && history[second] > HISTORY_LIMIT)) {
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                history[cell] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * 假设下了一步棋（一子或两子）
+     */
+    void placeMove(int move, int color) {
+        int first = firstCell(move);
+        int second = secondCell(move);
+        place(BitBoard.colOf(first), BitBoard.rowOf(first), color);
+        if (second != NO_CELL) {
+            place(BitBoard.colOf(second), BitBoard.rowOf(second), color);
+        }
+    }
+
+    /**
+     * 撤回一步棋，按落子的相反顺序提子
+     */
+    void unplaceMove(int move) {
+        int first = firstCell(move);
+        int second = secondCell(move);
+        if (second != NO_CELL) {
+            unplace(BitBoard.colOf(second), BitBoard.rowOf(second));
+        }
+        unplace(BitBoard.colOf(first), BitBoard.rowOf(first));
+    }
+
+    /**
+     * 假设在某点落子，同时更新受影响的黑白价值
+     */
+    void place(int x, int y, int color) {
+        board.put(x, y, color);
+        updateHashes(BitBoard.cell(x, y), color);
+        updateNeighborCount(x, y, 1);
+        updateBlackAndWhiteValue(x, y);
+        updateLineValue(x, y);
+    }
+
+    /**
+     * 在cell落子或提子时更新每种对称下的哈希值
+     */
+    private void updateHashes(int cell, int color) {
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            hashes[s] ^= Symmetry.key(s, color, cell);
+        }
+    }
+
+    /**
+     * 撤回之前下的棋子，黑白价值恢复原样
+     */
+    void unplace(int x, int y) {
+        updateHashes(BitBoard.cell(x, y), board.get(x, y));
+        board.remove(x, y);
+        updateNeighborCount(x, y, -1);
+        updateBlackAndWhiteValue(x, y);
+        updateLineValue(x, y);
+    }
+
+    /**
+     * 落子或提子后更新周围NEIGHBOR_RANGE格以内各点的棋子数
+     *
+     * @param delta 落子时为1，提子时为-1
+     */
+    private void updateNeighborCount(int x, int y, int delta) {
+        int left = Math.max(0, x - NEIGHBOR_RANGE);
+        int right = Math.min(COLS, x + NEIGHBOR_RANGE);
+        int top = Math.max(0, y - NEIGHBOR_RANGE);
+        int bottom = Math.min(ROWS, y + NEIGHBOR_RANGE);
+        for (int j = top; j <= bottom; j++) {
+            for (int i = left; i <= right; i++) {
+                neighborCount[BitBoard.cell(i, j)] += delta;
+            }
+        }
+    }
+
     /**
      * Alpha-Beta的静态评估
+     * 每条线的估值在落子提子时增量更新，这里直接取总和
      */
-    private int evaluateGame() {
-        int value = 0;
-        int[] line = new int[ChessBoard.COLS + 1];
-        //水平 对每一行估值
-        for (int j = 0; j <= ChessBoard.ROWS; j++) {
-            for (int i = 0; i <= ChessBoard.COLS; i++) {
-                //第一个下标是列下标
-                line[i] = chessBoard.boardStatus[i][j];
-            }
-            value += evaluateLine(line, ChessBoard.COLS + 1, 1);
-            value -= evaluateLine(line, ChessBoard.COLS + 1, 2);
-        }
-        //垂直 对每一列估值
-        for (int i = 0; i <= ChessBoard.COLS; i++) {
-            System.arraycopy(chessBoard.boardStatus[i], 0, line, 0, ChessBoard.ROWS + 1);
-            value += evaluateLine(line, ChessBoard.ROWS + 1, 1);
-            value -= evaluateLine(line, ChessBoard.ROWS + 1, 2);
-        }
-        // 左下到右上斜线估值
-        for (int j = 4; j <= ChessBoard.ROWS; j++) {
-            for (int k = 0; k <= j; k++) {
-                line[k] = chessBoard.boardStatus[k][j - k];
-            }
-            value += evaluateLine(line, j + 1, 1);
-            value -= evaluateLine(line, j + 1, 2);
-        }
-        for (int j = 1; j <= ChessBoard.ROWS - 4; j++) {
-            for (int k = 0; k <= ChessBoard.COLS - j; k++) {
-                line[k] = chessBoard.boardStatus[k + j][ChessBoard.ROWS - k];
-            }
-            value += evaluateLine(line, ChessBoard.ROWS + 1 - j, 1);
-            value -= evaluateLine(line, ChessBoard.ROWS + 1 - j, 2);
-        }
-        // 左上到右下斜线估值
-        for (int j = 0; j <= ChessBoard.ROWS - 4; j++) {
-            for (int k = 0; k <= ChessBoard.ROWS - j; k++) {
-                line[k] = chessBoard.boardStatus[k][k + j];
-            }
-            value += evaluateLine(line, ChessBoard.ROWS + 1 - j, 1);
-            value -= evaluateLine(line, ChessBoard.ROWS + 1 - j, 2);
-        }
-        for (int i = 1; i <= ChessBoard.COLS - 4; i++) {
-            for (int k = 0; k <= ChessBoard.ROWS - i; k++) {
-                line[k] = chessBoard.boardStatus[k + i][k];
-            }
-            value += evaluateLine(line, ChessBoard.ROWS + 1 - i, 1);
-            value -= evaluateLine(line, ChessBoard.ROWS + 1 - i, 2);
-        }
-        if (chessBoard.computerColor == 1) {
-            return value;
+    int evaluateGame() {
+        if (computerColor == 1) {
+            return boardValue;
         } else {
             //另一方是负值
-            return -value;
+            return -boardValue;
         }
     }
 
+    /**
+     * 对整个棋盘逐线估值一次，之后随落子提子增量更新
+     */
+    private void initLineValue() {
+        boardValue = 0;
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            lineValue[d] = new int[BitBoard.lineCount(d)];
+            for (int k = 0; k < BitBoard.lineCount(d); k++) {
+                lineValue[d][k] = evaluateLine(d, k);
+                boardValue += lineValue[d][k];
+            }
+        }
+    }
+
+    /**
+     * 在某点落子或提子后，只重新估值经过这一点的四条线
+     */
+    private void updateLineValue(int x, int y) {
+        int cell = BitBoard.cell(x, y);
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            int k = BitBoard.LINE_INDEX[d][cell];
+            int value = evaluateLine(d, k);
+            boardValue += value - lineValue[d][k];
+            lineValue[d][k] = value;
+        }
+    }
+
+    /**
+     * 一条线对黑方的估值：黑方的价值减去白方的价值
+     *
+     * @param d 方向
+     * @param k 线的序号
+     */
+    private int evaluateLine(int d, int k) {
+        int mask = BitBoard.lineMask(d, k);
+        //少于6个点的斜线不可能连六，不用估值
+        if (Integer.bitCount(mask) < 6) {
+            return 0;
+        }
+        int black = board.line(BitBoard.BLACK, d, k);
+        int white = board.line(BitBoard.WHITE, d, k);
+        return evaluateLine(black, white, mask) - evaluateLine(white, black, mask);
+    }
+
+    /**
+     * 一行对一方的价值，按当前的棋型分值
+     */
+    private int evaluateLine(int mine, int others, int mask) {
+        return scanLine(mine, others, mask, patternScore, null);
+    }
+
     /**
      * 计算一行的连珠数，调用棋型，计算价值
      *
-     * @param lineState 一行上的棋子
-     * @param num       这一行棋子数量
-     * @param color     要计算的是哪一方的价值，1：黑方，2：白方
+     * @param mine   这一行上要计算的一方的棋子位
+     * @param others 这一行上另一方的棋子位
+     * @param mask   这一行的有效位
+     * @param score  按棋型查分值的表
+     * @param counts 不为null时把每种棋型出现的次数加到这里，下标是棋型
      * @return 这一行的最终价值
      */
-    private int evaluateLine(int[] lineState, int num, int color) {
-        int chess, space1, space2;
+    private static int scanLine(int mine, int others, int mask, int[] score, int[] counts) {
         int value = 0;
-        int begin, end;
-        for (int i = 0; i < num; i++)
-            if (lineState[i] == color) {
-                //遇到要找的棋子，检查棋型，得到对应的分值
-                chess = 1;
-                begin = i;
-                for (int j = begin + 1; (j < num) && (lineState[j] == color); j++) {
-                    chess++;
-                }
-                if (chess < 2) {
-                    continue;
-                }
-//                end = j - 1;//todo ???
-                end = num - 1;
-
-                space1 = 0;
-                space2 = 0;
-                for (int j = begin - 1; (j >= 0) && ((lineState[j] == 0) || (lineState[j] == color)); j--) {
-                    //棋子前面的空格
-                    space1++;
-                }
-                for (int j = end + 1; (j < num) && ((lineState[j] == 0) || (lineState[j] == color)); j++) {
-                    //棋子前面的空格
-                    space2++;
-                }
+        //空位或者己方棋子都可以继续延伸
+        int blocked = ~(mask & ~others);
+        int rest = mine;
+        while (rest != 0) {
+            //遇到要找的棋子，检查棋型，得到对应的分值
+            int begin = Integer.numberOfTrailingZeros(rest);
+            int chess = Integer.numberOfTrailingZeros(~(rest >>> begin));
+            int end = begin + chess - 1;
+            rest &= ~(((1 << chess) - 1) << begin);
+            if (chess < 2) {
+                //单个棋子没有棋型
+                continue;
+            }
+            //棋子前面的空格
+            int space1 = begin - 1 - (31 - Integer.numberOfLeadingZeros(blocked & ((1 << begin) - 1)));
+            //棋子后面的空格
+            int space2 = Integer.numberOfTrailingZeros(blocked & (-1 << (end + 1))) - end - 1;
 
-                if (chess + space1 + space2 >= 6) {
-                    value += getValueByThree(chess, space1, space2);
-                }
-                i = end + 1;
+            //按连子数和两端空位数查棋型表
+            int pattern = PatternTable.runPattern(chess, space1, space2);
+            value += score[pattern];
+            if (counts != null) {
+                counts[pattern]++;
             }
+        }
         return value;
     }
 
     /**
-     * 根据棋型返回价值
-     * 看两层，也就是防止 AAOA 的情况
+     * 数一方在整个棋盘上每种棋型出现的次数，和局面估值用的是同样的棋型
+     * 局面估值就是黑方的次数减白方的次数，再和棋型分值做点积，所以调参时每个局面只需要数一次
      *
-     * @param chessCount1          该空位置下一个棋子后同种颜色棋子连续的个数 A后边连续的A个数
-     * @param spaceCount1          连续棋子一端的连续空位数 A...AOOO O的个数
-     * @param chessCount2          如果spaceCount1 = 1，继续连续同种颜色棋子的个数 AOAAAA 后边的A的个数
-     * @param spaceCount2          继chessCount2之后，连续空位数 AOA..AOOOO O的个数
-     * @param spaceCountOtherSide1 连续棋子另一端的连续空位数
-     * @param chessCountOtherSide1 如果spaceCountOtherSide1 = 1，继续连续同种颜色棋子的个数
-     * @param spaceCountOtherSide2 继chessCountOtherSide1之后，连续空位数
-     * @return 在该点放棋子会带来的价值
-     */
-    private int getValue(int chessCount1, int chessCount2, int chessCountOtherSide1,
-                         int spaceCount1, int spaceCount2, int spaceCountOtherSide1,
-                         int spaceCountOtherSide2) {
-        int value = 0;
-        //将六子棋棋型分为连六、活五、眠五、活四、眠四、活三、朦胧三、眠三、活二、眠二
-        //棋型：用A表示本颜色棋子，用B表示对方棋子，用O表示空位
-        switch (chessCount1) {
-            case 6:
-                //如果连续棋子数量为6，已经可以连成6子，则赢棋
-                //AAAAAA
-                value = SIX;
-                break;
-            case 5:
-                //如果连续棋子数量为5
-                if ((spaceCount1 > 0) && (spaceCountOtherSide1 > 0)) {
-                    //活五，也就是两边都空着，两方空白都大于零
-                    //OAAAAAO
-                    value = HUO_FIVE;
-                } else if (((spaceCount1 == 0) && (spaceCountOtherSide1 > 0)) ||
-                        ((spaceCount1 > 0) && (spaceCountOtherSide1 == 0))) {
-                    //眠五
-                    //一边有空位一边到头了
-                    //OAAAAAB
-                    value = MIAN_FIVE;
-                }
-                break;
-            case 4:
-                if ((spaceCount1 > 1) && (spaceCountOtherSide1 > 1)) {
-                    //活四
-                    value = HUO_FOUR;
-                } else if (((spaceCount1 > 1) && (spaceCountOtherSide1 == 0)) ||
-                        ((spaceCount1 == 0) && (spaceCountOtherSide1 > 1))) {
-                    //眠四
-                    value = MIAN_FOUR;
-                }
-                break;
-            case 3:
-                if ((spaceCount1 > 2) && (spaceCountOtherSide1 > 2)) {
-                    //OOOAAAOOO
-                    value = HUO_THREE;
-                } else if (((spaceCount1 == 0) && (spaceCountOtherSide1 > 3)) ||
-                        ((spaceCountOtherSide1 > 3) && (chessCountOtherSide1 == 0))) {
-                    //AAAOOO
-                    value = MIAN_THREE;
-                }
-                break;
-            case 2:
-                if ((spaceCount1 > 3) && (spaceCountOtherSide1 > 3)) {
-                    //活二
-                    value = HUO_TWO;
-                } else if (((spaceCount1 > 3) && (spaceCountOtherSide1 == 0)) ||
-                        ((spaceCount1 == 0) && (spaceCountOtherSide1 > 3))) {
-                    //眠二
-                    value = MIAN_TWO;
-                } else if (((spaceCount1 == 1) && (chessCount2 == 1) && (spaceCount2 == 2) && (spaceCountOtherSide1 == 1)) ||
-                        ((spaceCount1 == 1) && (chessCountOtherSide1 == 1) && (spaceCountOtherSide1 == 1) && (spaceCountOtherSide2 == 2))) {
-                    //BOOAOAAOB
-                    value = MENGLONG_THREE;
-                }
-                break;
-            case 1:
-                if (((spaceCount1 == 2) && (spaceCountOtherSide1 == 1) && (chessCountOtherSide1 == 2) && (spaceCountOtherSide2 == 1)) ||
-                        ((spaceCount1 == 1) && (spaceCount2 == 1) && (chessCount2 == 2) && (spaceCountOtherSide1 == 2))) {
-                    //BOOAOAAOB
-                    value = MENGLONG_THREE;
+     * @param color  1：黑棋，2：白棋
+     * @param counts 长度为PatternTable.PATTERNS，先清零再累加
+     */
+    static void countPatterns(BitBoard board, int color, int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            for (int k = 0; k < BitBoard.lineCount(d); k++) {
+                int mask = BitBoard.lineMask(d, k);
+                if (Integer.bitCount(mask) < 6) {
+                    continue;
                 }
-                break;
-            default:
-                value = 0;
-                break;
+                scanLine(board.line(color, d, k), board.line(3 - color, d, k), mask, NO_SCORES, counts);
+            }
         }
-        return value;
     }
 
     /*----------------------------排序选出可选点------------------------------*/
 
     /**
      * 查找可选点
-     * 每个空位的价值等于黑白棋的价值加上位置本身的价值
+     * 每个空位的价值等于黑白棋的价值加上位置本身的价值；
+     * 只考虑周围有棋子的空位，用大小为MY_REAL_VALUABLE_POSITION_NUM的小根堆选出价值最大的几个，
+     * 不需要对所有格子排序，也不分配内存
      *
-     * @return 价值最大的几个可选点，数组前面一层是[格子序号]，后面是{列坐标，行坐标，价值}
-     */
-    private int[][] getTheMostValuablePositions() {
-        //所有格子的总数 = 行 * 列
-        int allSquareNum = (ChessBoard.COLS + 1) * (ChessBoard.ROWS + 1);
-        //保存每一格子的价值
-        //外层索引是格子数，里面一层的三个分别存的是：列坐标，行坐标，价值
-        //例如：allValue[0] = {column, row, value};
-        int[][] allValue = new int[allSquareNum][3];
-        //格子的索引
-        int squareIndex = 0;
+     * @param valuablePositions 保存结果的缓冲区，每一项是打包的{价值，格子序号}，按价值降序
+     * @return 可选点的数量
+     */
+    int getTheMostValuablePositions(long[] valuablePositions) {
+        if (board.getCount() == 0) {
+            //空棋盘下在天元
+            valuablePositions[0] = candidate(BitBoard.cell(COLS / 2, ROWS / 2), 0);
+            return 1;
+        }
+        int size = 0;
         //遍历所有格子
-        for (int i = 0; i < ChessBoard.COLS; i++) {
-            for (int j = 0; j < ChessBoard.ROWS; j++) {
-                if (chessBoard.boardStatus[i][j] == 0) {
-                    allValue[squareIndex][0] = i;
-                    allValue[squareIndex][1] = j;
-                    //价值 = 黑 + 白 + 静态位置
-                    allValue[squareIndex][2] = blackValue[i][j] + whiteValue[i][j] + staticValue[i][j];
-                    squareIndex++;
-                }
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (neighborCount[cell] == 0 || !board.isEmpty(cell)) {
+                continue;
             }
+            //价值 = 黑 + 白 + 静态位置
+            int value = blackValue[cell] + whiteValue[cell] + staticValue[BitBoard.colOf(cell)][BitBoard.rowOf(cell)];
+            size = offer(valuablePositions, size, candidate(cell, value));
         }
+        sortDescending(valuablePositions, size);
+        return size;
+    }
 
-        //按价值降序排序
-        sort(allValue);
+    /**
+     * 把一项加入大小固定为heap.length的小根堆，堆满时只有比最小的大才替换掉最小的
+     *
+     * @param size 堆里现有的项数
+     * @return 加入后的项数
+     */
+    private static int offer(long[] heap, int size, long c) {
+        if (size < heap.length) {
+            //堆还没满，直接加入
+            heap[size] = c;
+            siftUp(heap, size);
+            return size + 1;
+        }
+        if (c > heap[0]) {
+            //比堆里最小的大，替换掉最小的
+            heap[0] = c;
+            siftDown(heap, 0, size);
+        }
+        return size;
+    }
+
+    /**
+     * 堆排序，每次把最小的换到末尾，最后就是降序
+     */
+    private static void sortDescending(long[] heap, int size) {
+        for (int end = size - 1; end > 0; end--) {
+            long t = heap[0];
+            heap[0] = heap[end];
+            heap[end] = t;
+            siftDown(heap, 0, end);
+        }
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        long c = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= c) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = c;
+    }
 
-        //需要进行评估的可选点数量
-        //从“格子总数”和“自定义的可选点数量”里面取最小值，就是实际用的可选点数量
-        int realValuablePositionNum = Math.min(allSquareNum, MY_REAL_VALUABLE_POSITION_NUM);
-        int[][] valuablePositions = new int[realValuablePositionNum][3];
-        //按照自定义的选择数量，将有价值的点复制给可选点
-        for (int i = 0; i < realValuablePositionNum; i++) {
-            valuablePositions[i][0] = allValue[i][0];
-            valuablePositions[i][1] = allValue[i][1];
-            valuablePositions[i][2] = allValue[i][2];
+    private static void siftDown(long[] heap, int i, int size) {
+        long c = heap[i];
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (c <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
         }
-        return valuablePositions;
+        heap[i] = c;
     }
 
     /**
-     * 对可选点按照价值排序
-     * 也就是对数组按第三列（allValue[][2]降序排序）
+     * 把可选点打包成一个long，高32位是价值，低32位是格子序号，直接比较大小就是按价值比较
+     */
+    private static long candidate(int cell, int value) {
+        return ((long) value << 32) | cell;
+    }
+
+    private static int cellOf(long candidate) {
+        return (int) candidate;
+    }
+
+    private static int valueOf(long candidate) {
+        return (int) (candidate >> 32);
+    }
+
+    /*----------------------------生成两子着法------------------------------*/
+
+    /**
+     * 生成一方这一步的着法
+     * 六子棋除黑方第一步外每步下两子，一层搜索就是完整的一步：
+     * 先取价值最大的几个点作为第一子，对每个第一子假设落下后再取价值最大的几个点作为第二子，
+     * 两子价值之和作为这一组合的价值，重复的组合只保留一次，最后只保留价值最大的几组
      *
-     * @param allValue 待排序的数组，数组前面一层是[格子序号]，后面是{列坐标，行坐标，价值}
+     * @param color  下棋的一方，1：黑方，2：白方
+     * @param stones 这一步下几个子，1或2
+     * @param buffer 保存着法的缓冲区，按价值降序
+     * @return 着法的数量；如果这一步就能连六，winFound为true，只返回那一个着法
      */
-    private void sort(int[][] allValue) {
-        for (int i = 0; i < allValue.length; i++) {
-            for (int j = 0; j < allValue.length - 1; j++) {
-                int ti, tj, tvalue;
-                if (allValue[j][2] < allValue[j + 1][2]) {
-                    tvalue = allValue[j][2];
-                    allValue[j][2] = allValue[j + 1][2];
-                    allValue[j + 1][2] = tvalue;
+    int generateMoves(int color, int stones, int[] buffer) {
+        winFound = false;
+        int firstCount = getTheMostValuablePositions(firstStones);
 
-                    ti = allValue[j][0];
-                    allValue[j][0] = allValue[j + 1][0];
-                    allValue[j + 1][0] = ti;
+        //一子就能连六
+        for (int i = 0; i < firstCount; i++) {
+            int cell = cellOf(firstStones[i]);
+            if (board.isSix(BitBoard.colOf(cell), BitBoard.rowOf(cell), color)) {
+                int other = (stones == 1 || firstCount < 2) ? NO_CELL : cellOf(firstStones[i == 0 ? 1 : 0]);
+                buffer[0] = move(cell, other);
+                winFound = true;
+                return 1;
+            }
+        }
 
-                    tj = allValue[j][1];
-                    allValue[j][1] = allValue[j + 1][1];
-                    allValue[j + 1][1] = tj;
+        if (stones == 1 || firstCount < 2) {
+            int count = Math.min(firstCount, buffer.length);
+            for (int i = 0; i < count; i++) {
+                buffer[i] = move(cellOf(firstStones[i]), NO_CELL);
+                moveValues[i] = valueOf(firstStones[i]);
+            }
+            return count;
+        }
 
+        int pairCount = 0;
+        for (int i = 0; i < firstCount; i++) {
+            int first = cellOf(firstStones[i]);
+            place(BitBoard.colOf(first), BitBoard.rowOf(first), color);
+            int secondCount = getTheMostValuablePositions(secondStones);
+            for (int j = 0; j < secondCount; j++) {
+                int second = cellOf(secondStones[j]);
+                int m = move(Math.min(first, second), Math.max(first, second));
+                if (board.isSix(BitBoard.colOf(second), BitBoard.rowOf(second), color)) {
+                    //两子连六
+                    unplace(BitBoard.colOf(first), BitBoard.rowOf(first));
+                    buffer[0] = m;
+                    winFound = true;
+                    return 1;
+                }
+                //两个子调换顺序是同一个着法
+                if (!containsMove(pairHeap, pairCount, m)) {
+                    pairCount = offer(pairHeap, pairCount, candidate(m, valueOf(firstStones[i]) + valueOf(secondStones[j])));
                 }
             }
+            unplace(BitBoard.colOf(first), BitBoard.rowOf(first));
+        }
+
+        sortDescending(pairHeap, pairCount);
+        for (int i = 0; i < pairCount; i++) {
+            buffer[i] = cellOf(pairHeap[i]);
+            moveValues[i] = valueOf(pairHeap[i]);
+        }
+        return pairCount;
+    }
+
+    private static boolean containsMove(long[] heap, int size, int move) {
+        for (int i = 0; i < size; i++) {
+            if (cellOf(heap[i]) == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把第一子和第二子的格子序号打包成一个着法，各占9位，只下一子时第二子为NO_CELL
+     * 置换表、开局库和Symmetry都用这种打包方式
+     */
+    static int move(int first, int second) {
+        return first | (second << 9);
+    }
+
+    static int firstCell(int move) {
+        return move & NO_CELL;
+    }
+
+    static int secondCell(int move) {
+        return move >>> 9;
+    }
+
+    /**
+     * @return 着法的一子或两子的坐标，先x后y
+     */
+    static int[] toPosition(int move) {
+        int first = firstCell(move);
+        int second = secondCell(move);
+        if (second == NO_CELL) {
+            return new int[]{BitBoard.colOf(first), BitBoard.rowOf(first)};
         }
+        return new int[]{BitBoard.colOf(first), BitBoard.rowOf(first), BitBoard.colOf(second), BitBoard.rowOf(second)};
     }
 
 
     /*----------------------------快速静态评估-----------------------------*/
 
     /**
-     * 更新每格的黑白价值
+     * 计算每格的黑白价值
      * 按照当前局面，给每个格子的黑白价值进行更新，每个点的分值为四个方向分值之和。
      * 调用了评估棋型，里面是还用数连珠数量，计算棋型价值的方法
      */
-    private void updateBlackAndWhiteValue() {
-        int left, top, right, bottom;
-        left = (chessBoard.left > 2) ? chessBoard.left - 2 : 0;
-        top = (chessBoard.top > 2) ? chessBoard.top - 2 : 0;
-        right = (chessBoard.right < ChessBoard.COLS - 1) ? chessBoard.right + 2 : ChessBoard.COLS;
-        bottom = (chessBoard.bottom < ChessBoard.ROWS - 1) ? chessBoard.bottom + 2 : ChessBoard.ROWS;
-        for (int i = left; i <= right; i++) {
-            for (int j = top; j <= bottom; j++) {
+    private void initBlackAndWhiteValue() {
+        for (int i = 0; i <= COLS; i++) {
+            for (int j = 0; j <= ROWS; j++) {
                 //对棋盘的所有点循环
-                if (chessBoard.boardStatus[i][j] == 0) {
-                    //如果是空位，进行估值
-                    for (int m = 1; m <= 4; m++) {
-                        //每个点的分值为四个方向分值之和
-                        //要计算的是哪一方的价值，1：黑方，2：白方
-                        //要计算方向，1：水平，2：垂直，3：左上到右下，4：右上到左下
-                        blackValue[i][j] += evaluateValue(1, i, j, m);
-                        whiteValue[i][j] += evaluateValue(2, i, j, m);
-                    }
-                } else {
-                    //如果不是空位，就没有价值
-                    blackValue[i][j] = 0;
-                    whiteValue[i][j] = 0;
+                for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+                    updateDirectionValue(i, j, d);
                 }
             }
         }
     }
 
     /**
-     * 计算棋盘上可选点的价值
-     * 包括颜色，坐标，方向
+     * 在某点落子或提子后更新黑白价值
+     * 一个点的价值只看四个方向上前后VALUE_RANGE格以内的棋子，
+     * 所以只需要重新计算这一点和它四条线上距离不超过VALUE_RANGE的点
      *
-     * @param color     要计算的是哪一方的价值，1：黑方，2：白方
-     * @param colomn    要计算位置的列坐标
-     * @param row       要计算位置的行坐标
-     * @param direction 要计算方向，1：水平，2：垂直，3：左上到右下，4：右上到左下
-     * @return 可选点的限定价值
+     * @param x 落子或提子的列坐标
+     * @param y 落子或提子的行坐标
      */
-    private int evaluateValue(int color, int colomn, int row, int direction) {
-        int columnCount, rowCount;
-        int value = 0;
-        int chessCount1 = 1;  // 指定颜色的棋子数
-        int chessCount2 = 0;  // 指定颜色的棋子数
-        int chessCount3 = 0;  // 指定颜色的棋子数
-        int spaceCount1 = 0;  //一端的空位数
-        int spaceCountOtherSide1 = 0; //另一端空位数
-        int spaceCountOtherSide2 = 0; //另一端空位数
-        int spaceCountOtherSide3 = 0; //另一端空位数
-        switch (direction) {
-            //水平方向
-            case 1: {
-                //向增加的方向查找相同颜色连续的棋子
-                for (columnCount = colomn + 1; columnCount <= ChessBoard.COLS; columnCount++) {
-                    if (chessBoard.boardStatus[columnCount][row] == color) {
-                        chessCount1++;
-                    } else {
-                        break;
-                    }
-                }
-                //在棋子尽头查找连续的空格数
-                while ((columnCount <= ChessBoard.COLS) && (chessBoard.boardStatus[columnCount][row] == 0)) {
-                    spaceCount1++;
-                    columnCount++;
-                }
-                if (spaceCount1 == 1) {
-                    while ((columnCount <= ChessBoard.COLS) && (chessBoard.boardStatus[columnCount][row] == color)) {
-                        chessCount2++;
-                        columnCount++;
-                    }
-                    while ((columnCount <= ChessBoard.COLS) && (chessBoard.boardStatus[columnCount][row] == 0)) {
-                        spaceCountOtherSide1++;
-                        columnCount++;
-                    }
-                }
-                //向相反方向查找相同颜色连续的棋子
-                for (columnCount = colomn - 1; columnCount >= 0; columnCount--) {
-                    if (chessBoard.boardStatus[columnCount][row] == color) {
-                        chessCount1++;
-                    } else {
-                        break;
-                    }
-                }
-                //在棋子的尽头查找连续的空格数
-                while (columnCount >= 0 && (chessBoard.boardStatus[columnCount][row] == 0)) {
-                    spaceCountOtherSide2++;
-                    columnCount--;
-                }
-                if (spaceCountOtherSide2 == 1) {
-                    while ((columnCount >= 0) && (chessBoard.boardStatus[columnCount][row] == color)) {
-                        chessCount3++;
-                        columnCount--;
-                    }
-                    while ((columnCount >= 0) && (chessBoard.boardStatus[columnCount][row] == 0)) {
-                        spaceCountOtherSide3++;
-                        columnCount--;
-                    }
+    void updateBlackAndWhiteValue(int x, int y) {
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            int dx = DIRECTION_X[d];
+            int dy = DIRECTION_Y[d];
+            updateDirectionValue(x, y, d);
+            for (int k = 1; k <= VALUE_RANGE; k++) {
+                int i = x + dx * k;
+                int j = y + dy * k;
+                if (i < 0 || i > COLS || j < 0 || j > ROWS) {
+                    break;
                 }
-                break;
+                updateDirectionValue(i, j, d);
             }
-            //垂直方向
-            case 2: {
-                //向增加的方向查找相同颜色连续的棋子
-                for (columnCount = row + 1; columnCount <= ChessBoard.ROWS; columnCount++) {
-                    if (chessBoard.boardStatus[colomn][columnCount] == color) {
-                        chessCount1++;
-                    } else {
-                        break;
-                    }
-                }
-                //在棋子尽头查找连续的空格数
-                while ((columnCount <= ChessBoard.ROWS) && (chessBoard.boardStatus[colomn][columnCount] == 0)) {
-                    spaceCount1++;
-                    columnCount++;
-                }
-                if (spaceCount1 == 1) {
-                    while ((columnCount <= ChessBoard.ROWS) && (chessBoard.boardStatus[colomn][columnCount] == color)) {
-                        chessCount2++;
-                        columnCount++;
-                    }
-                    while ((columnCount <= ChessBoard.ROWS) && (chessBoard.boardStatus[colomn][columnCount] == 0)) {
-                        spaceCountOtherSide1++;
-                        columnCount++;
-                    }
-                }
-                //向相反方向查找相同颜色连续的棋子
-                for (columnCount = row - 1; columnCount >= 0; columnCount--) {
-                    if (chessBoard.boardStatus[colomn][columnCount] == color) {
-                        chessCount1++;
-                    } else {
-                        break;
-                    }
-                }
-                //在相反方向的棋子尽头查找连续的空格数
-                while (columnCount >= 0 && (chessBoard.boardStatus[colomn][columnCount] == 0)) {
-                    spaceCountOtherSide2++;
-                    columnCount--;
-                }
-                if (spaceCountOtherSide2 == 1) {
-                    while ((columnCount >= 0) && (chessBoard.boardStatus[colomn][columnCount] == color)) {
-                        chessCount3++;
-                        columnCount--;
-                    }
-                    while ((columnCount >= 0) && (chessBoard.boardStatus[colomn][columnCount] == 0)) {
-                        spaceCountOtherSide3++;
-                        columnCount--;
-                    }
+            for (int k = 1; k <= VALUE_RANGE; k++) {
+                int i = x - dx * k;
+                int j = y - dy * k;
+                if (i < 0 || i > COLS || j < 0 || j > ROWS) {
+                    break;
                 }
-                break;
+                updateDirectionValue(i, j, d);
             }
-            //左上到右下
-            case 3: {
-                //向增加的方向查找相同颜色连续的棋子
-                for (columnCount = colomn + 1, rowCount = row + 1; (columnCount <= ChessBoard.COLS) && (rowCount <= ChessBoard.ROWS); columnCount++, rowCount++) {
-                    if (chessBoard.boardStatus[columnCount][rowCount] == color) {
-                        chessCount1++;
-                    } else {
-                        break;
-                    }
-                }
-                //在棋子尽头查找连续的空格数
-                while ((columnCount <= ChessBoard.COLS) && (rowCount <= ChessBoard.ROWS) && (chessBoard.boardStatus[columnCount][rowCount] == 0)) {
-                    spaceCount1++;
-                    columnCount++;
-                    rowCount++;
-                }
-                if (spaceCount1 == 1) {
-                    while ((columnCount <= ChessBoard.COLS) && (rowCount <= ChessBoard.ROWS) && (chessBoard.boardStatus[columnCount][rowCount] == color)) {
-                        chessCount2++;
-                        columnCount++;
-                        rowCount++;
-                    }
-                    while ((columnCount <= ChessBoard.COLS) && (rowCount <= ChessBoard.ROWS) && (chessBoard.boardStatus[columnCount][rowCount] == 0)) {
-                        spaceCountOtherSide1++;
-                        columnCount++;
-                        rowCount++;
-                    }
-                }
-                //向相反方向查找相同颜色连续的棋子
-                for (columnCount = colomn - 1, rowCount = row - 1; (columnCount >= 0) && (rowCount >= 0); columnCount--, rowCount--) {
-                    if (chessBoard.boardStatus[columnCount][rowCount] == color) {
-                        chessCount1++;
-                    } else {
-                        break;
-                    }
-                }
-                //在相反方向的棋子尽头查找连续的空格数
-                while ((columnCount >= 0) && (rowCount >= 0) && (chessBoard.boardStatus[columnCount][rowCount] == 0)) {
-                    spaceCountOtherSide2++;
-                    columnCount--;
-                    rowCount--;
-                }
-                if (spaceCountOtherSide2 == 1) {
-                    while ((columnCount >= 0) && (rowCount >= 0) && (chessBoard.boardStatus[columnCount][rowCount] == color)) {
-                        chessCount3++;
-                        columnCount--;
-                        rowCount--;
-                    }
-                    while ((columnCount >= 0) && (rowCount >= 0) && (chessBoard.boardStatus[columnCount][rowCount] == 0)) {
-                        spaceCountOtherSide3++;
-                        columnCount--;
-                        rowCount--;
-                    }
-                }
-                break;
-            }
-            //右上到左下
-            case 4: {
-                for (columnCount = colomn + 1, rowCount = row - 1; columnCount <= ChessBoard.COLS && rowCount >= 0; columnCount++, rowCount--) {
-                    //查找连续的同色棋子
-                    if (chessBoard.boardStatus[columnCount][rowCount] == color) {
-                        chessCount1++;
-                    } else {
-                        break;
-                    }
-                }
-                while (columnCount <= ChessBoard.COLS && rowCount >= 0 && (chessBoard.boardStatus[columnCount][rowCount] == 0)) {
-                    //统计空位数
-                    spaceCount1++;
-                    columnCount++;
-                    rowCount--;
-                }
-                if (spaceCount1 == 1) {
-                    while ((columnCount <= ChessBoard.COLS) && (rowCount >= 0) && (chessBoard.boardStatus[columnCount][rowCount] == color)) {
-                        chessCount2++;
-                        columnCount++;
-                        rowCount--;
-                    }
-                    while ((columnCount <= ChessBoard.COLS) && (rowCount >= 0) && (chessBoard.boardStatus[columnCount][rowCount] == 0)) {
-                        spaceCountOtherSide1++;
-                        columnCount++;
-                        rowCount--;
-                    }
-                }
-                for (columnCount = colomn - 1, rowCount = row + 1; columnCount >= 0 && rowCount <= ChessBoard.ROWS; columnCount--, rowCount++) {
-                    //查找连续的同色棋子
-                    if (chessBoard.boardStatus[columnCount][rowCount] == color) {
-                        chessCount1++;
-                    } else {
-                        break;
-                    }
-                }
-                while (columnCount >= 0 && rowCount <= ChessBoard.ROWS && (chessBoard.boardStatus[columnCount][rowCount] == 0)) {
-                    // 统计空位数
-                    spaceCountOtherSide2++;
-                    columnCount--;
-                    rowCount++;
-                }
-                if (spaceCountOtherSide2 == 1) {
-                    while ((columnCount >= 0) && (rowCount <= ChessBoard.ROWS) && (chessBoard.boardStatus[columnCount][rowCount] == color)) {
-                        chessCount3++;
-                        columnCount--;
-                        rowCount++;
-                    }
-                    while ((columnCount >= 0) && (rowCount <= ChessBoard.ROWS) && (chessBoard.boardStatus[columnCount][rowCount] == 0)) {
-                        spaceCountOtherSide3++;
-                        columnCount--;
-                        rowCount++;
-                    }
-                }
-                break;
-            }
-        }
-        if (chessCount1 + chessCount2 + chessCount3 + spaceCount1 + spaceCountOtherSide1 + spaceCountOtherSide2 + spaceCountOtherSide3 >= 6) {
-            //只有同色棋子数加两端的空位数不少于6时，才有价值
-            //将棋的布局放入计算棋型的函数，获取棋型的真实价值
-            value = getValue(chessCount1, chessCount2, chessCount3, spaceCount1, spaceCountOtherSide1, spaceCountOtherSide2, spaceCountOtherSide3);
         }
-        return value;
     }
 
     /**
-     * 获取不同棋型的价值
-     * 只看一层，快速看
-     *
-     * @param chessCount          该空位置下一个棋子后同种颜色棋子连续的个数 AAA
-     * @param spaceCount          连续棋子一端的连续空位数 AOOOO
-     * @param spaceCountOtherSide 连续棋子另一端的连续空位数
-     * @return 该点放棋子会带来的价值
+     * 重新计算一个点在一个方向上的黑白价值，并把差值加到这一点的总价值上
+     * 只和当前局面有关，所以提子后再算一次就能准确恢复落子前的值
      */
-    private int getValueByThree(int chessCount, int spaceCount, int spaceCountOtherSide) {
-        int value = 0;
-        //六子棋棋型
-        switch (chessCount) {
-            case 6:
-                //如果已经可以连成6子，则赢棋
-                value = SIX;
-                break;
-            case 5:
-                if ((spaceCount > 0) && (spaceCountOtherSide > 0)) {
-                    //活五
-                    value = HUO_FIVE;
-                }
-                break;
-            case 4:
-                if ((spaceCount > 0) && (spaceCountOtherSide > 0)) {
-                    //活四
-                    value = HUO_FOUR;
-                }
-                break;
-            case 3:
-                if ((spaceCount > 0) && (spaceCountOtherSide > 0)) {
-                    //活三
-                    value = HUO_THREE;
-                }
-                break;
-            case 2:
-                if ((spaceCount > 0) && (spaceCountOtherSide > 0)) {
-                    //活二
-                    value = HUO_TWO;
-                }
-                break;
-            default:
-                value = 0;
-                break;
+    private void updateDirectionValue(int i, int j, int d) {
+        int cell = BitBoard.cell(i, j);
+        int black = 0;
+        int white = 0;
+        if (board.isEmpty(i, j)) {
+            //如果是空位，进行估值
+            //要计算的是哪一方的价值，1：黑方，2：白方
+            black = evaluateValue(1, i, j, d + 1);
+            white = evaluateValue(2, i, j, d + 1);
         }
-        return value;
+        //如果不是空位，就没有价值
+        blackValue[cell] += black - blackDirectionValue[d][cell];
+        whiteValue[cell] += white - whiteDirectionValue[d][cell];
+        blackDirectionValue[d][cell] = black;
+        whiteDirectionValue[d][cell] = white;
     }
 
-
+    /**
+     * 计算棋盘上可选点的价值
+     * 包括颜色，坐标，方向
+     * 取出位棋盘上这一点所在的线，前后各VALUE_RANGE格编码后查棋型表
+     *
+     * @param color     要计算的是哪一方的价值，1：黑方，2：白方
+     * @param colomn    要计算位置的列坐标
+     * @param row       要计算位置的行坐标
+     * @param direction 要计算方向，1：水平，2：垂直，3：左上到右下，4：右上到左下
+     * @return 可选点的限定价值
+     */
+    private int evaluateValue(int color, int colomn, int row, int direction) {
+        int d = direction - 1;
+        int cell = BitBoard.cell(colomn, row);
+        int index = BitBoard.LINE_INDEX[d][cell];
+        int pos = BitBoard.LINE_POS[d][cell];
+        int mine = board.line(color, d, index);
+        int empty = BitBoard.lineMask(d, index) & ~mine & ~board.line(3 - color, d, index);
+        //前后各VALUE_RANGE格的棋型已经在棋型表里算好
+        return patternScore[PatternTable.pointPattern(mine, empty, pos)];
+    }
 }
-
@@ -0,0 +1,192 @@
+package aiSix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 一次读入整个棋谱文件，用来分析大量的对局
+ * 所有对局的棋子连续存在一个short数组里，每局只记起止位置和结果，不为每局创建对象；
+ * 文件按块读进直接缓冲区解码，读几百万局也只是顺序扫一遍。
+ */
+public class GameArchive {
+    private static final int CHUNK = 1 << 20;//每次从文件读的字节数
+
+    private short[] cells = new short[1024];//所有对局的棋子，一局接一局
+    private int[] offsets = new int[65];//第g局的棋子是cells[offsets[g]]到cells[offsets[g + 1] - 1]
+    private byte[] results = new byte[64];
+    private int size;//对局数
+    private int cellCount;//cells里已经用的长度
+    private boolean open;//正在读的一局还没有结束
+
+    private GameArchive() {
+    }
+
+    public static GameArchive load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return load(channel);
+        }
+    }
+
+    public static GameArchive load(InputStream in) throws IOException {
+        return load(Channels.newChannel(in));
+    }
+
+    private static GameArchive load(ReadableByteChannel channel) throws IOException {
+        GameArchive archive = new GameArchive();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK);
+        boolean header = true;
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            if (header) {
+                if (buffer.remaining() < 8) {
+                    //文件头还没读全
+                    buffer.compact();
+                    continue;
+                }
+                if (buffer.getInt() != GameRecord.MAGIC) {
+                    throw new IOException("不是棋谱文件");
+                }
+                int version = buffer.getInt();
+                if (version != GameRecord.VERSION) {
+                    throw new IOException("不支持的棋谱版本：" + version);
+                }
+                header = false;
+            }
+            while (buffer.remaining() >= 2) {
+                archive.decode(buffer.getShort() & 0xFFFF);
+            }
+            //块的末尾可能剩下半个代码，留到下一块
+            buffer.compact();
+        }
+        if (header) {
+            throw new IOException("不是棋谱文件");
+        }
+        if (archive.open) {
+            archive.closeGame(GameRecord.UNFINISHED);
+        }
+        return archive;
+    }
+
+    private void decode(int code) throws IOException {
+        if (code < BitBoard.CELLS) {
+            if (!open) {
+                openGame();
+            }
+            if (cellCount == cells.length) {
+                cells = Arrays.copyOf(cells, cellCount * 2);
+            }
+            cells[cellCount++] = (short) code;
+        } else if (code == GameRecord.START) {
+            if (open) {
+                closeGame(GameRecord.UNFINISHED);
+            }
+            openGame();
+        } else if (code == GameRecord.UNDO) {
+            if (open && cellCount > offsets[size]) {
+                cellCount--;
+            }
+        } else if ((code & 0xFF00) == GameRecord.END && (code & 0xFF) <= GameRecord.UNFINISHED) {
+            if (!open) {
+                openGame();
+            }
+            closeGame(code & 0xFF);
+        } else {
+            throw new IOException("棋谱文件损坏，不能识别的代码：" + Integer.toHexString(code));
+        }
+    }
+
+    private void openGame() {
+        open = true;
+        offsets[size] = cellCount;
+    }
+
+    private void closeGame(int result) {
+        open = false;
+        if (cellCount == offsets[size] && result == GameRecord.UNFINISHED) {
+            //开始了但一子也没下
+            return;
+        }
+        if (size + 1 == results.length) {
+            results = Arrays.copyOf(results, results.length * 2);
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        results[size] = (byte) result;
+        size++;
+        offsets[size] = cellCount;
+    }
+
+    /**
+     * @return 对局数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 第game局的棋子数
+     */
+    public int getCount(int game) {
+        return offsets[game + 1] - offsets[game];
+    }
+
+    /**
+     * @return 第game局第index个子的格子序号
+     */
+    public int getCell(int game, int index) {
+        return cells[offsets[game] + index];
+    }
+
+    public int getResult(int game) {
+        return results[game];
+    }
+
+    public GameRecord get(int game) {
+        return new GameRecord(Arrays.copyOfRange(cells, offsets[game], offsets[game + 1]), results[game]);
+    }
+
+    /**
+     * 从空棋盘开始把第game局重新下一遍
+     */
+    public GameState replay(int game) {
+        GameState state = new GameState();
+        for (int i = offsets[game]; i < offsets[game + 1]; i++) {
+            state.makeMove(BitBoard.colOf(cells[i]), BitBoard.rowOf(cells[i]));
+        }
+        return state;
+    }
+
+    /**
+     * 用法：GameArchive 棋谱文件 [--text]
+     * 统计对局数和胜负，带--text时把每局按文本格式输出
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法：GameArchive 棋谱文件 [--text]");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        GameArchive archive = load(Paths.get(args[0]));
+        long millis = (System.nanoTime() - start) / 1000000;
+        if (args.length > 1 && "--text".equals(args[1])) {
+            for (int g = 0; g < archive.size(); g++) {
+                System.out.println(archive.get(g).toText());
+            }
+            return;
+        }
+        int[] counts = new int[GameRecord.UNFINISHED + 1];
+        for (int g = 0; g < archive.size(); g++) {
+            counts[archive.getResult(g)]++;
+        }
+        System.out.printf("%d局，%d子，黑胜%d，白胜%d，和棋%d，未完成%d，读取用时%dms%n", archive.size(), archive.cellCount,
+                counts[GameRecord.BLACK_WIN], counts[GameRecord.WHITE_WIN], counts[GameRecord.DRAW],
+                counts[GameRecord.UNFINISHED], millis);
+    }
+}
@@ -0,0 +1,169 @@
+package aiSix;
+
+import java.util.Arrays;
+
+/**
+ * 一局棋的棋谱：按落子顺序的格子序号和结果
+ * <p>
+ * 二进制格式（GameRecordWriter写，GameArchive读）：文件头是魔数和版本各4字节，
+ * 之后是一串大端的2字节代码，可以边下边追加：
+ * 0到360是一个棋子的格子序号，START开始新的一局，UNDO撤回上一子，END | 结果 结束这一局。
+ * 没有END就遇到START或者文件结尾的一局记为UNFINISHED。
+ * <p>
+ * 文本格式一局一行，按步用空格分开，每一子是列字母（A到T，跳过I）加行号（从下往上1到19），
+ * 最后是结果：B+黑胜，W+白胜，=和棋，*没下完。例如 K10 L11L9 J9K9 W+
+ */
+public class GameRecord {
+    //结果
+    public static final int DRAW = 0;//棋盘下满
+    public static final int BLACK_WIN = BitBoard.BLACK;
+    public static final int WHITE_WIN = BitBoard.WHITE;
+    public static final int UNFINISHED = 3;//中途退出或者重新开始
+
+    //二进制格式
+    static final int MAGIC = 0x41495852;//"AIXR"
+    static final int VERSION = 1;
+    static final int START = 0xFD00;
+    static final int UNDO = 0xFE00;
+    static final int END = 0xFF00;//低8位是结果
+
+    private static final String COLUMNS = "ABCDEFGHJKLMNOPQRST";
+    private static final String[] RESULTS = {"=", "B+", "W+", "*"};
+
+    private final short[] cells;//按落子顺序的格子序号
+    private final int result;
+
+    /**
+     * @param cells  按落子顺序的格子序号，不复制
+     * @param result DRAW、BLACK_WIN、WHITE_WIN或者UNFINISHED
+     */
+    GameRecord(short[] cells, int result) {
+        this.cells = cells;
+        this.result = result;
+    }
+
+    /**
+     * 记下一局当前的棋谱
+     */
+    public static GameRecord of(GameState state) {
+        short[] cells = new short[state.getCount()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = (short) BitBoard.cell(state.getCol(i), state.getRow(i));
+        }
+        return new GameRecord(cells, resultOf(state));
+    }
+
+    /**
+     * @return 对局的结果，还没结束时是UNFINISHED
+     */
+    public static int resultOf(GameState state) {
+        if (state.getWinner() != 0) {
+            return state.getWinner();
+        }
+        return state.isGameOver() ? DRAW : UNFINISHED;
+    }
+
+    public int getCount() {
+        return cells.length;
+    }
+
+    /**
+     * @return 第index个子的格子序号
+     */
+    public int getCell(int index) {
+        return cells[index];
+    }
+
+    public int getCol(int index) {
+        return BitBoard.colOf(cells[index]);
+    }
+
+    public int getRow(int index) {
+        return BitBoard.rowOf(cells[index]);
+    }
+
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * 从空棋盘开始把棋谱重新下一遍
+     *
+     * @throws IllegalArgumentException 棋谱里有不能下的子
+     */
+    public GameState replay() {
+        GameState state = new GameState();
+        for (short cell : cells) {
+            state.makeMove(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+        }
+        return state;
+    }
+
+    /**
+     * @return 一行文本格式的棋谱
+     */
+    public String toText() {
+        StringBuilder s = new StringBuilder(cells.length * 4 + 3);
+        for (int i = 0; i < cells.length; i++) {
+            //每一步的第一子前面加空格，黑方第一步之后每步两子
+            if (i > 0 && i % 2 == 1) {
+                s.append(' ');
+            }
+            s.append(COLUMNS.charAt(getCol(i))).append(BitBoard.SIZE - getRow(i));
+        }
+        if (cells.length > 0) {
+            s.append(' ');
+        }
+        return s.append(RESULTS[result]).toString();
+    }
+
+    /**
+     * 解析一行文本格式的棋谱
+     *
+     * @throws IllegalArgumentException 格式不对
+     */
+    public static GameRecord parse(String text) {
+        short[] cells = new short[16];
+        int count = 0;
+        int result = UNFINISHED;
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+            int col = COLUMNS.indexOf(Character.toUpperCase(c));
+            if (col >= 0 && i + 1 < n && Character.isDigit(text.charAt(i + 1))) {
+                //一子：列字母加一两位的行号
+                int number = 0;
+                i++;
+                while (i < n && Character.isDigit(text.charAt(i))) {
+                    number = number * 10 + text.charAt(i++) - '0';
+                }
+                if (number < 1 || number > BitBoard.SIZE) {
+                    throw new IllegalArgumentException("行号超出棋盘：" + text);
+                }
+                if (count == cells.length) {
+                    cells = Arrays.copyOf(cells, count * 2);
+                }
+                cells[count++] = (short) BitBoard.cell(col, BitBoard.SIZE - number);
+                continue;
+            }
+            //最后是结果
+            int r = Arrays.asList(RESULTS).indexOf(text.substring(i).trim());
+            if (r < 0) {
+                throw new IllegalArgumentException("不能识别的棋谱：" + text);
+            }
+            result = r;
+            break;
+        }
+        return new GameRecord(Arrays.copyOf(cells, count), result);
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+}
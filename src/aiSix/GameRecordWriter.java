@@ -0,0 +1,120 @@
+package aiSix;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 按GameRecord的二进制格式写棋谱
+ * 可以边下边写：每落一子写一个代码，悔棋写UNDO，不用等一局下完；也可以一次写一整局。
+ * 写进缓冲区，需要马上落盘时调用flush。
+ */
+public class GameRecordWriter implements Closeable {
+    private static final Logger LOG = Logger.getLogger(GameRecordWriter.class.getName());
+
+    private final DataOutputStream out;
+
+    /**
+     * 写到一个新的流，先写文件头
+     */
+    public GameRecordWriter(OutputStream out) throws IOException {
+        this(out, true);
+    }
+
+    private GameRecordWriter(OutputStream out, boolean header) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        if (header) {
+            this.out.writeInt(GameRecord.MAGIC);
+            this.out.writeInt(GameRecord.VERSION);
+        }
+    }
+
+    /**
+     * 追加到棋谱文件的末尾，文件不存在或者是空的时先写文件头
+     */
+    public static GameRecordWriter append(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        boolean empty = !Files.exists(file) || Files.size(file) == 0;
+        return new GameRecordWriter(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), empty);
+    }
+
+    /**
+     * 界面保存棋谱的文件
+     * 用 -DaiSix.record=文件 指定，默认是用户目录下的.aisix/games.rec，指定为空时不保存；
+     * 打开失败时返回null
+     */
+    public static GameRecordWriter openDefault() {
+        String file = System.getProperty("aiSix.record",
+                Paths.get(System.getProperty("user.home"), ".aisix", "games.rec").toString());
+        if (file.isEmpty()) {
+            return null;
+        }
+        try {
+            return append(Paths.get(file));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "棋谱文件打开失败，不保存棋谱", e);
+            return null;
+        }
+    }
+
+    /**
+     * 开始新的一局，上一局没有结束的话记为UNFINISHED
+     */
+    public void startGame() throws IOException {
+        out.writeShort(GameRecord.START);
+    }
+
+    /**
+     * 落一子
+     */
+    public void stone(int col, int row) throws IOException {
+        out.writeShort(BitBoard.cell(col, row));
+    }
+
+    /**
+     * 撤回上一子
+     */
+    public void undo() throws IOException {
+        out.writeShort(GameRecord.UNDO);
+    }
+
+    /**
+     * 这一局结束
+     *
+     * @param result GameRecord.DRAW、BLACK_WIN、WHITE_WIN或者UNFINISHED
+     */
+    public void endGame(int result) throws IOException {
+        out.writeShort(GameRecord.END | result);
+    }
+
+    /**
+     * 写一整局
+     */
+    public void write(GameRecord record) throws IOException {
+        startGame();
+        for (int i = 0; i < record.getCount(); i++) {
+            out.writeShort(record.getCell(i));
+        }
+        endGame(record.getResult());
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
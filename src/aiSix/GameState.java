@@ -0,0 +1,160 @@
+package aiSix;
+
+/**
+ * 对局状态
+ * 棋盘、落子顺序和胜负，不依赖Swing和AWT，界面、自对弈和测试都可以直接使用。
+ * 规则：黑方第一步下一子，之后双方轮流每步下两子，先连成六子的一方获胜。
+ */
+public class GameState {
+    private final BitBoard board = new BitBoard();
+    private final int[] moves = new int[BitBoard.CELLS];//按落子顺序保存的格子序号
+    private int count;//棋盘上的棋子数
+    private int winner;//获胜的一方，1：黑方，2：白方，0：还没分出胜负
+
+    public GameState() {
+    }
+
+    /**
+     * 复制一个对局，在副本上落子不影响原来的对局
+     */
+    public GameState copy() {
+        GameState s = new GameState();
+        for (int i = 0; i < count; i++) {
+            s.makeMove(BitBoard.colOf(moves[i]), BitBoard.rowOf(moves[i]));
+        }
+        return s;
+    }
+
+    /**
+     * 第index个子（从0开始）是哪一方下的
+     *
+     * @return 1：黑方，2：白方
+     */
+    public static int colorOf(int index) {
+        //黑方下第0子，之后每两子换一方：1、2白方，3、4黑方……
+        return ((index + 1) / 2) % 2 == 0 ? BitBoard.BLACK : BitBoard.WHITE;
+    }
+
+    /**
+     * @return 下一子该哪一方下，1：黑方，2：白方
+     */
+    public int colorToMove() {
+        return colorOf(count);
+    }
+
+    /**
+     * @return 当前这一步还要下几子：空棋盘（黑方第一步）或者这一步已经下了一子时只下一子，否则两子
+     */
+    public int stonesToPlace() {
+        return count % 2 == 1 ? 2 : 1;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return 第index个子的列坐标
+     */
+    public int getCol(int index) {
+        return BitBoard.colOf(moves[index]);
+    }
+
+    /**
+     * @return 第index个子的行坐标
+     */
+    public int getRow(int index) {
+        return BitBoard.rowOf(moves[index]);
+    }
+
+    /**
+     * @return 该点的状态，0空，1黑棋，2白棋
+     */
+    public int get(int col, int row) {
+        return board.get(col, row);
+    }
+
+    /**
+     * @return 获胜的一方，1：黑方，2：白方，0：还没分出胜负
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * @return 有一方连成六子，或者棋盘已经下满
+     */
+    public boolean isGameOver() {
+        return winner != 0 || count == BitBoard.CELLS;
+    }
+
+    /**
+     * @return 对局没有结束，坐标在棋盘内并且是空位
+     */
+    public boolean isLegal(int col, int row) {
+        return !isGameOver() && col >= 0 && col < BitBoard.SIZE && row >= 0 && row < BitBoard.SIZE
+                && board.isEmpty(col, row);
+    }
+
+    /**
+     * 列出所有可以落子的空位
+     *
+     * @param buffer 保存格子序号的缓冲区，长度至少为BitBoard.CELLS
+     * @return 空位数，对局结束时为0
+     */
+    public int legalMoves(int[] buffer) {
+        if (isGameOver()) {
+            return 0;
+        }
+        int n = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (board.isEmpty(cell)) {
+                buffer[n++] = cell;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 当前一方在(col, row)落一子，连成六子时记下获胜方
+     *
+     * @throws IllegalArgumentException 不能在该点落子
+     */
+    public void makeMove(int col, int row) {
+        if (!isLegal(col, row)) {
+            throw new IllegalArgumentException("不能在(" + col + ", " + row + ")落子");
+        }
+        int color = colorToMove();
+        board.put(col, row, color);
+        moves[count++] = BitBoard.cell(col, row);
+        if (board.isSix(col, row, color)) {
+            winner = color;
+        }
+    }
+
+    /**
+     * 撤回最后一子
+     */
+    public void unmakeMove() {
+        if (count == 0) {
+            return;
+        }
+        int cell = moves[--count];
+        board.remove(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+        //连成六子后对局就结束了，所以获胜的只可能是最后一子
+        winner = 0;
+    }
+
+    public void clear() {
+        board.clear();
+        count = 0;
+        winner = 0;
+    }
+
+    /**
+     * 位棋盘，只能读，落子和提子都要通过makeMove和unmakeMove
+     */
+    BitBoard getBoard() {
+        return board;
+    }
+}
@@ -0,0 +1,255 @@
+package aiSix;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 开局库
+ * 开局的几步每局都一样，提前用BookBuilder自对弈搜好存进文件，对局时查到就直接下，不用再搜索。
+ * 局面按Symmetry的标准方向存，一条记录对8个对称（旋转和翻转）的局面都有效。
+ * <p>
+ * 文件格式，全部大端：
+ * 头部16字节：魔数、版本、库里局面的最多棋子数、记录数，各4字节；
+ * 之后每条记录12字节：局面在标准方向下的Zobrist哈希值8字节，按有符号数升序排列，
+ * 着法4字节（按Evaluate.move打包，标准方向下的坐标）。
+ * 文件直接映射到内存，按哈希值二分查找，不需要先读进来。
+ * 哈希值取决于Zobrist的随机数，改了Zobrist就要重新生成开局库。
+ */
+public class OpeningBook {
+    static final int MAGIC = 0x41495842;//"AIXB"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 12;
+    //没有指定开局库文件时读取的资源
+    private static final String DEFAULT_RESOURCE = "opening.book";
+    private static final Logger LOG = Logger.getLogger(OpeningBook.class.getName());
+
+    private final ByteBuffer data;
+    private final int maxStones;//库里局面的最多棋子数，超过的不用查
+    private final int size;//记录数
+
+    private OpeningBook(ByteBuffer data) throws IOException {
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("不是开局库文件");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("不支持的开局库版本：" + data.getInt(4));
+        }
+        this.data = data;
+        maxStones = data.getInt(8);
+        size = data.getInt(12);
+        if (data.capacity() < HEADER_BYTES + (long) size * ENTRY_BYTES) {
+            throw new IOException("开局库文件不完整");
+        }
+    }
+
+    /**
+     * 把开局库文件映射到内存
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            //映射建立后关闭通道不影响读取
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 从流读入开局库，用于打在jar里、不能映射的开局库
+     */
+    public static OpeningBook read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+        }
+        ByteBuffer data = ByteBuffer.allocateDirect(bytes.size());
+        data.put(bytes.toByteArray());
+        return new OpeningBook(data);
+    }
+
+    /**
+     * 界面启动时加载开局库
+     * 用 -DaiSix.book=文件 指定时映射这个文件，否则加载和board.jpg放在一起的opening.book；
+     * 都没有或者读取失败时返回null，不用开局库
+     */
+    public static OpeningBook loadDefault() {
+        String file = System.getProperty("aiSix.book");
+        try {
+            if (file != null) {
+                return open(Paths.get(file));
+            }
+            URL url = OpeningBook.class.getClassLoader().getResource(DEFAULT_RESOURCE);
+            if (url == null) {
+                return null;
+            }
+            if ("file".equals(url.getProtocol())) {
+                return open(Paths.get(url.toURI()));
+            }
+            try (InputStream in = url.openStream()) {
+                return read(in);
+            }
+        } catch (IOException | URISyntaxException e) {
+            LOG.log(Level.WARNING, "开局库加载失败", e);
+            return null;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getMaxStones() {
+        return maxStones;
+    }
+
+    /**
+     * 查找当前一方这一步的着法
+     *
+     * @return 这一步要下的一子或两子的坐标，先x后y；库里没有这个局面时返回null
+     */
+    public int[] lookup(GameState state) {
+        if (state.getCount() > maxStones || state.isGameOver()) {
+            return null;
+        }
+        long[] hashes = hashes(state);
+        int symmetry = Symmetry.canonical(hashes);
+        int move = find(hashes[symmetry]);
+        if (move == -1) {
+            return null;
+        }
+        int[] position = decode(move, symmetry);
+        if (position.length != 2 * state.stonesToPlace() || !isLegal(state, position)) {
+            //哈希冲突或者文件坏了
+            return null;
+        }
+        return position;
+    }
+
+    /**
+     * @return 着法的每一子都能下，两子时不在同一点
+     */
+    private static boolean isLegal(GameState state, int[] position) {
+        for (int i = 0; i + 1 < position.length; i += 2) {
+            if (!state.isLegal(position[i], position[i + 1])) {
+                return false;
+            }
+        }
+        return position.length < 4 || position[0] != position[2] || position[1] != position[3];
+    }
+
+    /**
+     * 二分查找一个哈希值
+     *
+     * @return 着法，没有找到返回-1
+     */
+    private int find(long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long k = data.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (k < key) {
+                low = mid + 1;
+            } else if (k > key) {
+                high = mid - 1;
+            } else {
+                return data.getInt(HEADER_BYTES + mid * ENTRY_BYTES + 8);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 局面按每种对称变换后的哈希值
+     */
+    static long[] hashes(GameState state) {
+        long[] hashes = new long[Symmetry.COUNT];
+        Symmetry.hashes(state.getBoard(), hashes);
+        return hashes;
+    }
+
+    /**
+     * 把当前局面下的着法换成标准方向下打包的着法
+     *
+     * @param position 一子或两子的坐标，先x后y
+     */
+    static int encode(int[] position, int symmetry) {
+        int first = BitBoard.cell(position[0], position[1]);
+        int second = position.length < 4 ? Evaluate.NO_CELL : BitBoard.cell(position[2], position[3]);
+        return Symmetry.transformMove(Evaluate.move(first, second), symmetry);
+    }
+
+    /**
+     * 把标准方向下打包的着法换回当前局面的方向
+     *
+     * @param symmetry 当前局面变换到标准方向用的对称
+     * @return 一子或两子的坐标，先x后y
+     */
+    static int[] decode(int move, int symmetry) {
+        return Evaluate.toPosition(Symmetry.transformMove(move, Symmetry.inverse(symmetry)));
+    }
+
+    /**
+     * 写出开局库文件
+     *
+     * @param keys      标准方向下的哈希值，会被排序
+     * @param moves     和keys对应的打包着法，跟着一起排序
+     * @param count     记录数
+     * @param maxStones 库里局面的最多棋子数
+     */
+    static void write(OutputStream out, long[] keys, int[] moves, int count, int maxStones) throws IOException {
+        sort(keys, moves, count);
+        DataOutputStream o = new DataOutputStream(out);
+        o.writeInt(MAGIC);
+        o.writeInt(VERSION);
+        o.writeInt(maxStones);
+        o.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            o.writeLong(keys[i]);
+            o.writeInt(moves[i]);
+        }
+        o.flush();
+    }
+
+    static void write(Path file, long[] keys, int[] moves, int count, int maxStones) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(out, keys, moves, count, maxStones);
+        }
+    }
+
+    /**
+     * 按哈希值升序排序，着法跟着一起移动
+     */
+    private static void sort(long[] keys, int[] moves, int count) {
+        //开局库只有几千条记录，先按下标排序再重排，不用自己写快速排序
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        long[] k = new long[count];
+        int[] m = new int[count];
+        for (int i = 0; i < count; i++) {
+            k[i] = keys[order[i]];
+            m[i] = moves[order[i]];
+        }
+        System.arraycopy(k, 0, keys, 0, count);
+        System.arraycopy(m, 0, moves, 0, count);
+    }
+}
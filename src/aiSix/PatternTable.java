@@ -0,0 +1,317 @@
+package aiSix;
+
+/**
+ * 棋型表
+ * 一个空位在一个方向上的棋型只和前后各RANGE格有关，每格只有己方棋子、空位、挡住（对方棋子或棋盘外）三种状态，
+ * 所以把这10格编码成一个三进制数，启动时对所有3^10种情况算好棋型，估值时查一次表就行，
+ * 不再逐格数连子和空位，也不用走一长串if。
+ * 整条线的估值按连续棋子分段，每段的棋型由 连子数、前后空位数 决定，同样先算好放在表里。
+ * 表里存的是棋型，不是分值，分值由Evaluate按棋型查出来。
+ */
+public class PatternTable {
+    //棋型：将六子棋棋型分为连六、活五、眠五、活四、眠四、活三、朦胧三、眠三、活二、眠二
+    public static final int NONE = 0;
+    public static final int MIAN_TWO = 1;
+    public static final int HUO_TWO = 2;
+    public static final int MIAN_THREE = 3;
+    public static final int MENGLONG_THREE = 4;
+    public static final int HUO_THREE = 5;
+    public static final int MIAN_FOUR = 6;
+    public static final int HUO_FOUR = 7;
+    public static final int MIAN_FIVE = 8;
+    public static final int HUO_FIVE = 9;
+    public static final int SIX = 10;
+    public static final int PATTERNS = 11;//棋型的种数
+
+    static final int RANGE = 5;//空位前后各看的格数
+    private static final int WINDOW = RANGE * 2 + 1;//连同空位本身的窗口长度
+    private static final int WINDOW_MASK = (1 << WINDOW) - 1;
+    private static final int POINT_STATES = pow3(WINDOW - 1);
+
+    //整条线分段时，连子数和空位数超过这么多就不影响棋型
+    private static final int MAX_RUN = 7;
+    private static final int MAX_SPACE = 6;
+
+    //窗口内的位集合对应的三进制数，空位本身那一格不编码
+    private static final int[] TERNARY = new int[1 << WINDOW];
+    //下标是窗口的三进制编码：0挡住，1己方棋子，2空位
+    private static final byte[] POINT = new byte[POINT_STATES];
+    //下标是 (连子数 * 8 + 一端空位数) * 8 + 另一端空位数
+    private static final byte[] RUN = new byte[(MAX_RUN + 1) * 64];
+
+    static {
+        for (int bits = 0; bits < TERNARY.length; bits++) {
+            int value = 0;
+            int digit = 1;
+            for (int k = 0; k < WINDOW; k++) {
+                if (k == RANGE) {
+                    continue;
+                }
+                if (((bits >>> k) & 1) != 0) {
+                    value += digit;
+                }
+                digit *= 3;
+            }
+            TERNARY[bits] = value;
+        }
+
+        for (int code = 0; code < POINT_STATES; code++) {
+            //空位本身当作已经下了己方棋子
+            int mine = 1 << RANGE;
+            int empty = 0;
+            int rest = code;
+            for (int k = 0; k < WINDOW; k++) {
+                if (k == RANGE) {
+                    continue;
+                }
+                int state = rest % 3;
+                rest /= 3;
+                if (state == 1) {
+                    mine |= 1 << k;
+                } else if (state == 2) {
+                    empty |= 1 << k;
+                }
+            }
+            POINT[code] = (byte) classifyPoint(mine, empty);
+        }
+
+        for (int chess = 0; chess <= MAX_RUN; chess++) {
+            for (int space1 = 0; space1 <= MAX_SPACE; space1++) {
+                for (int space2 = 0; space2 <= MAX_SPACE; space2++) {
+                    int pattern = NONE;
+                    if (chess + space1 + space2 >= 6) {
+                        pattern = getPatternByThree(chess, space1, space2);
+                    }
+                    RUN[(chess << 6) | (space1 << 3) | space2] = (byte) pattern;
+                }
+            }
+        }
+    }
+
+    private PatternTable() {
+    }
+
+    /**
+     * 在一条线上的空位落子会形成的棋型
+     *
+     * @param mine  这条线上己方的棋子位
+     * @param empty 这条线上的空位位
+     * @param pos   要落子的空位在线上的位置
+     * @return 棋型，见 NONE 等常量
+     */
+    public static int pointPattern(int mine, int empty, int pos) {
+        //把空位移到窗口中间，窗口外和线外的位都是0，也就是挡住
+        int m = ((mine << RANGE) >>> pos) & WINDOW_MASK;
+        int e = ((empty << RANGE) >>> pos) & WINDOW_MASK;
+        return POINT[TERNARY[m] + 2 * TERNARY[e]];
+    }
+
+    /**
+     * 线上一段连续棋子的棋型
+     *
+     * @param chess  连子数
+     * @param space1 连子一端的连续空位数
+     * @param space2 连子另一端的连续空位数
+     * @return 棋型，见 NONE 等常量
+     */
+    public static int runPattern(int chess, int space1, int space2) {
+        return RUN[(Math.min(chess, MAX_RUN) << 6) | (Math.min(space1, MAX_SPACE) << 3) | Math.min(space2, MAX_SPACE)];
+    }
+
+    private static int pow3(int n) {
+        int value = 1;
+        for (int k = 0; k < n; k++) {
+            value *= 3;
+        }
+        return value;
+    }
+
+    /**
+     * 建表用：数出窗口中间那一子两边的连子和空位，再判断棋型
+     * 测试里用它对照逐格扫描的结果和查表的结果
+     *
+     * @param mine  窗口内己方的棋子位，包括中间的那一子
+     * @param empty 窗口内的空位位
+     */
+    static int classifyPoint(int mine, int empty) {
+        int chessCount1 = 1;  // 指定颜色的棋子数
+        int chessCount2 = 0;  // 指定颜色的棋子数
+        int chessCount3 = 0;  // 指定颜色的棋子数
+        int spaceCount1 = 0;  //一端的空位数
+        int spaceCountOtherSide1 = 0; //另一端空位数
+        int spaceCountOtherSide2 = 0; //另一端空位数
+        int spaceCountOtherSide3 = 0; //另一端空位数
+        int p;
+        //向增加的方向查找相同颜色连续的棋子
+        for (p = RANGE + 1; ((mine >>> p) & 1) != 0; p++) {
+            chessCount1++;
+        }
+        //在棋子尽头查找连续的空格数
+        for (; ((empty >>> p) & 1) != 0; p++) {
+            spaceCount1++;
+        }
+        if (spaceCount1 == 1) {
+            for (; ((mine >>> p) & 1) != 0; p++) {
+                chessCount2++;
+            }
+            for (; ((empty >>> p) & 1) != 0; p++) {
+                spaceCountOtherSide1++;
+            }
+        }
+        //向相反方向查找相同颜色连续的棋子
+        for (p = RANGE - 1; p >= 0 && ((mine >>> p) & 1) != 0; p--) {
+            chessCount1++;
+        }
+        //在棋子的尽头查找连续的空格数
+        for (; p >= 0 && ((empty >>> p) & 1) != 0; p--) {
+            spaceCountOtherSide2++;
+        }
+        if (spaceCountOtherSide2 == 1) {
+            for (; p >= 0 && ((mine >>> p) & 1) != 0; p--) {
+                chessCount3++;
+            }
+            for (; p >= 0 && ((empty >>> p) & 1) != 0; p--) {
+                spaceCountOtherSide3++;
+            }
+        }
+        if (chessCount1 + chessCount2 + chessCount3 + spaceCount1 + spaceCountOtherSide1 + spaceCountOtherSide2 + spaceCountOtherSide3 < 6) {
+            //只有同色棋子数加两端的空位数不少于6时，才有价值
+            return NONE;
+        }
+        return getPattern(chessCount1, chessCount2, chessCount3, spaceCount1, spaceCountOtherSide1, spaceCountOtherSide2, spaceCountOtherSide3);
+    }
+
+    /**
+     * 根据连子和空位判断棋型
+     * 看两层，也就是防止 AAOA 的情况
+     *
+     * @param chessCount1          该空位置下一个棋子后同种颜色棋子连续的个数 A后边连续的A个数
+     * @param spaceCount1          连续棋子一端的连续空位数 A...AOOO O的个数
+     * @param chessCount2          如果spaceCount1 = 1，继续连续同种颜色棋子的个数 AOAAAA 后边的A的个数
+     * @param spaceCount2          继chessCount2之后，连续空位数 AOA..AOOOO O的个数
+     * @param spaceCountOtherSide1 连续棋子另一端的连续空位数
+     * @param chessCountOtherSide1 如果spaceCountOtherSide1 = 1，继续连续同种颜色棋子的个数
+     * @param spaceCountOtherSide2 继chessCountOtherSide1之后，连续空位数
+     * @return 在该点放棋子会形成的棋型
+     */
+    private static int getPattern(int chessCount1, int chessCount2, int chessCountOtherSide1,
+                                  int spaceCount1, int spaceCount2, int spaceCountOtherSide1,
+                                  int spaceCountOtherSide2) {
+        int pattern = NONE;
+        //棋型：用A表示本颜色棋子，用B表示对方棋子，用O表示空位
+        switch (chessCount1) {
+            case 6:
+                //如果连续棋子数量为6，已经可以连成6子，则赢棋
+                //AAAAAA
+                pattern = SIX;
+                break;
+            case 5:
+                //如果连续棋子数量为5
+                if ((spaceCount1 > 0) && (spaceCountOtherSide1 > 0)) {
+                    //活五，也就是两边都空着，两方空白都大于零
+                    //OAAAAAO
+                    pattern = HUO_FIVE;
+                } else if (((spaceCount1 == 0) && (spaceCountOtherSide1 > 0)) ||
+                        ((spaceCount1 > 0) && (spaceCountOtherSide1 == 0))) {
+                    //眠五
+                    //一边有空位一边到头了
+                    //OAAAAAB
+                    pattern = MIAN_FIVE;
+                }
+                break;
+            case 4:
+                if ((spaceCount1 > 1) && (spaceCountOtherSide1 > 1)) {
+                    //活四
+                    pattern = HUO_FOUR;
+                } else if (((spaceCount1 > 1) && (spaceCountOtherSide1 == 0)) ||
+                        ((spaceCount1 == 0) && (spaceCountOtherSide1 > 1))) {
+                    //眠四
+                    pattern = MIAN_FOUR;
+                }
+                break;
+            case 3:
+                if ((spaceCount1 > 2) && (spaceCountOtherSide1 > 2)) {
+                    //OOOAAAOOO
+                    pattern = HUO_THREE;
+                } else if (((spaceCount1 == 0) && (spaceCountOtherSide1 > 3)) ||
+                        ((spaceCountOtherSide1 > 3) && (chessCountOtherSide1 == 0))) {
+                    //AAAOOO
+                    pattern = MIAN_THREE;
+                }
+                break;
+            case 2:
+                if ((spaceCount1 > 3) && (spaceCountOtherSide1 > 3)) {
+                    //活二
+                    pattern = HUO_TWO;
+                } else if (((spaceCount1 > 3) && (spaceCountOtherSide1 == 0)) ||
+                        ((spaceCount1 == 0) && (spaceCountOtherSide1 > 3))) {
+                    //眠二
+                    pattern = MIAN_TWO;
+                } else if (((spaceCount1 == 1) && (chessCount2 == 1) && (spaceCount2 == 2) && (spaceCountOtherSide1 == 1)) ||
+                        ((spaceCount1 == 1) && (chessCountOtherSide1 == 1) && (spaceCountOtherSide1 == 1) && (spaceCountOtherSide2 == 2))) {
+                    //BOOAOAAOB
+                    pattern = MENGLONG_THREE;
+                }
+                break;
+            case 1:
+                if (((spaceCount1 == 2) && (spaceCountOtherSide1 == 1) && (chessCountOtherSide1 == 2) && (spaceCountOtherSide2 == 1)) ||
+                        ((spaceCount1 == 1) && (spaceCount2 == 1) && (chessCount2 == 2) && (spaceCountOtherSide1 == 2))) {
+                    //BOOAOAAOB
+                    pattern = MENGLONG_THREE;
+                }
+                break;
+            default:
+                pattern = NONE;
+                break;
+        }
+        return pattern;
+    }
+
+    /**
+     * 根据连子和两端空位判断棋型
+     * 只看一层，快速看
+     *
+     * @param chessCount          同种颜色棋子连续的个数 AAA
+     * @param spaceCount          连续棋子一端的连续空位数 AOOOO
+     * @param spaceCountOtherSide 连续棋子另一端的连续空位数
+     * @return 棋型
+     */
+    private static int getPatternByThree(int chessCount, int spaceCount, int spaceCountOtherSide) {
+        int pattern = NONE;
+        //六子棋棋型
+        switch (chessCount) {
+            case 6:
+                //如果已经可以连成6子，则赢棋
+                pattern = SIX;
+                break;
+            case 5:
+                if ((spaceCount > 0) && (spaceCountOtherSide > 0)) {
+                    //活五
+                    pattern = HUO_FIVE;
+                }
+                break;
+            case 4:
+                if ((spaceCount > 0) && (spaceCountOtherSide > 0)) {
+                    //活四
+                    pattern = HUO_FOUR;
+                }
+                break;
+            case 3:
+                if ((spaceCount > 0) && (spaceCountOtherSide > 0)) {
+                    //活三
+                    pattern = HUO_THREE;
+                }
+                break;
+            case 2:
+                if ((spaceCount > 0) && (spaceCountOtherSide > 0)) {
+                    //活二
+                    pattern = HUO_TWO;
+                }
+                break;
+            default:
+                pattern = NONE;
+                break;
+        }
+        return pattern;
+    }
+}
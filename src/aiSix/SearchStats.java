@@ -0,0 +1,171 @@
+package aiSix;
+
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * 搜索统计
+ * 记录一步棋的搜索做了多少工作：每层的节点数、截断次数、第一个着法就截断的比例、估值次数、
+ * 置换表命中率、用时和有效分支因子，用来调整候选点数量和搜索深度。
+ * 每个搜索线程各自计数，不加锁，搜索结束后把辅助线程的计数加到主线程上。
+ * 用 -DaiSix.stats=false 关闭统计时ENABLED是常量false，JIT会把计数的代码整个去掉。
+ */
+public class SearchStats {
+    static final boolean ENABLED = !"false".equals(System.getProperty("aiSix.stats"));
+    //每步的统计按 键=值 的格式记在这个日志里，级别是FINE，默认不输出，要看时在logging配置里打开
+    static final Logger LOG = Logger.getLogger(SearchStats.class.getName());
+
+    final long[] nodesPerDepth = new long[Evaluate.MAX_SEARCH_DEPTH + 1];//迭代加深每一层搜索的节点数
+    long nodes;             //搜索的节点总数，包括没有搜完的最后一层
+    long cutoffs;           //Alpha-Beta截断次数
+    long firstMoveCutoffs;  //第一个着法就截断的次数
+    long researches;        //零窗口没能证明着法更差，用完整窗口重搜的次数
+    long aspirationFails;   //根节点分值落在渴望窗口外，放宽窗口重搜的次数
+    long evaluations;       //静态估值次数
+    long tableProbes;       //查置换表的次数
+    long tableHits;         //置换表里找到同一局面的次数
+    int depth;              //搜完的深度
+    boolean threatWin;      //威胁空间搜索直接找到了必胜
+    boolean bookMove;       //开局库里的着法，没有搜索
+    boolean ponder;         //在对方思考时的后台搜索
+    long timeMillis;        //这一步的用时，毫秒
+
+    /**
+     * 在第index个着法发生截断
+     */
+    void recordCutoff(int index) {
+        cutoffs++;
+        if (index == 0) {
+            firstMoveCutoffs++;
+        }
+    }
+
+    /**
+     * 把另一个线程的计数加进来
+     */
+    void add(SearchStats other) {
+        for (int d = 0; d < nodesPerDepth.length; d++) {
+            nodesPerDepth[d] += other.nodesPerDepth[d];
+        }
+        nodes += other.nodes;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        researches += other.researches;
+        aspirationFails += other.aspirationFails;
+        evaluations += other.evaluations;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return 迭代加深搜第depth层时访问的节点数
+     */
+    public long getNodes(int depth) {
+        return nodesPerDepth[depth];
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * @return 截断中第一个着法就截断的比例，着法排序越好越接近1
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    public long getResearches() {
+        return researches;
+    }
+
+    public long getAspirationFails() {
+        return aspirationFails;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public double getTableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean isThreatWin() {
+        return threatWin;
+    }
+
+    public boolean isBookMove() {
+        return bookMove;
+    }
+
+    public boolean isPonder() {
+        return ponder;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getNodesPerSecond() {
+        return timeMillis == 0 ? nodes * 1000 : nodes * 1000 / timeMillis;
+    }
+
+    /**
+     * 有效分支因子：最后两层节点数的比值，反映每多搜一层要多花几倍的工作
+     */
+    public double getEffectiveBranchingFactor() {
+        if (depth < 2 || nodesPerDepth[depth - 1] == 0) {
+            return 0;
+        }
+        return (double) nodesPerDepth[depth] / nodesPerDepth[depth - 1];
+    }
+
+    /**
+     * 在状态栏显示的简短说明
+     */
+    public String summary() {
+        if (bookMove) {
+            return "开局库着法";
+        }
+        if (threatWin) {
+            return String.format("连续冲棋必胜，用时%dms", timeMillis);
+        }
+        return String.format("深度%d，%d节点（%d/秒），首着截断率%.0f%%，置换表命中率%.0f%%，分支因子%.1f，用时%dms",
+                depth, nodes, getNodesPerSecond(), getFirstMoveCutoffRate() * 100, getTableHitRate() * 100,
+                getEffectiveBranchingFactor(), timeMillis);
+    }
+
+    /**
+     * 每步一行的结构化日志，键=值，用空格分隔
+     */
+    public String toLogString() {
+        StringBuilder s = new StringBuilder();
+        s.append("depth=").append(depth)
+                .append(" ponder=").append(ponder)
+                .append(" threatWin=").append(threatWin)
+                .append(" timeMs=").append(timeMillis)
+                .append(" nodes=").append(nodes)
+                .append(" nps=").append(getNodesPerSecond())
+                .append(" cutoffs=").append(cutoffs)
+                .append(" firstMoveCutoffRate=").append(String.format(Locale.ROOT, "%.3f", getFirstMoveCutoffRate()))
+                .append(" researches=").append(researches)
+                .append(" aspirationFails=").append(aspirationFails)
+                .append(" evaluations=").append(evaluations)
+                .append(" ttHitRate=").append(String.format(Locale.ROOT, "%.3f", getTableHitRate()))
+                .append(" ebf=").append(String.format(Locale.ROOT, "%.2f", getEffectiveBranchingFactor()))
+                .append(" nodesPerDepth=");
+        for (int d = 1; d <= depth; d++) {
+            s.append(d == 1 ? "" : ",").append(nodesPerDepth[d]);
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,312 @@
+package aiSix;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 无界面的自对弈比赛
+ * 两种引擎配置A和B在线程池里并行下很多局，每局一个线程，每个引擎单线程搜索，线程池默认用满所有核。
+ * 开局先随机下几步，每个随机开局下两局，A、B各执一次黑，抵消先手的优势。
+ * 每下完一局输出一行结果和用时，最后统计A的胜负和棋、得分率、Elo差和95%置信区间。
+ * <p>
+ * 用法：java -cp aisix.jar aiSix.SelfPlay [--games 局数] [--threads 线程数] [--opening 随机步数]
+ * [--seed 随机种子] [--record 棋谱文件] [--a 配置] [--b 配置]
+ * 配置是逗号分隔的 键=值：time 每步毫秒，depth 最大搜索深度，table 置换表大小的位数，book 是否用开局库，
+ * weights 估值参数文件。
+ * 例如 --a time=200,depth=4 --b time=200 或者 --a weights=tuned.weights
+ */
+public class SelfPlay {
+    private static final double Z95 = 1.96;//95%置信区间对应的正态分布分位数
+    private static final String USAGE = "用法：SelfPlay [--games 局数] [--threads 线程数] [--opening 随机步数] "
+            + "[--seed 随机种子] [--record 棋谱文件] [--a 配置] [--b 配置]";
+
+    /**
+     * 一方引擎的配置
+     */
+    static class Config {
+        long timeLimit = 200;
+        int maxDepth = Evaluate.MAX_SEARCH_DEPTH;
+        int tableBits = 18;
+        boolean book = false;
+        String weightsFile;//估值参数文件，为null时用默认值
+        Weights weights = Weights.DEFAULT;
+
+        /**
+         * 解析 键=值,键=值 格式的配置
+         *
+         * @throws IllegalArgumentException 不能识别的键
+         * @throws IOException               估值参数文件读取失败
+         */
+        static Config parse(String text) throws IOException {
+            Config c = new Config();
+            for (String item : text.split(",")) {
+                if (item.trim().isEmpty()) {
+                    continue;
+                }
+                String[] kv = item.split("=", 2);
+                String value = kv.length > 1 ? kv[1].trim() : "";
+                switch (kv[0].trim()) {
+                    case "time":
+                        c.timeLimit = Long.parseLong(value);
+                        break;
+                    case "depth":
+                        c.maxDepth = Integer.parseInt(value);
+                        break;
+                    case "table":
+                        c.tableBits = Integer.parseInt(value);
+                        break;
+                    case "book":
+                        c.book = Boolean.parseBoolean(value);
+                        break;
+                    case "weights":
+                        c.weightsFile = value;
+                        c.weights = Weights.read(Paths.get(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("不能识别的配置：" + item);
+                }
+            }
+            return c;
+        }
+
+        Engine createEngine(OpeningBook openingBook) {
+            Engine engine = new Engine(tableBits);
+            engine.setTimeLimit(timeLimit);
+            engine.setMaxDepth(maxDepth);
+            engine.setOpeningBook(book ? openingBook : null);
+            engine.setWeights(weights);
+            return engine;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("time=%d,depth=%d,table=%d,book=%b%s", timeLimit, maxDepth, tableBits, book,
+                    weightsFile == null ? "" : ",weights=" + weightsFile);
+        }
+    }
+
+    /**
+     * 一局的结果
+     */
+    static class Game {
+        int index;
+        boolean aIsBlack;
+        GameState state;
+        double scoreA;//A的得分，赢1，和0.5，输0
+        long millis;//这一局的用时
+        long[] thinkMillis = new long[2];//A、B各自思考的总时间
+        int[] moves = new int[2];//A、B各自下的步数
+    }
+
+    private final Config a;
+    private final Config b;
+    private final int openingSteps;
+    private final long seed;
+    private final OpeningBook openingBook;
+
+    public SelfPlay(Config a, Config b, int openingSteps, long seed) {
+        this.a = a;
+        this.b = b;
+        this.openingSteps = openingSteps;
+        this.seed = seed;
+        this.openingBook = a.book || b.book ? OpeningBook.loadDefault() : null;
+    }
+
+    /**
+     * 下第index局：第2k和2k+1局用同一个随机开局，A分别执黑和执白
+     */
+    Game play(int index) {
+        Game game = new Game();
+        game.index = index;
+        game.aIsBlack = index % 2 == 0;
+        game.state = randomOpening(new Random(seed * 31 + index / 2));
+
+        //每局新建引擎，置换表不在对局之间共用
+        Engine engineA = a.createEngine(openingBook);
+        Engine engineB = b.createEngine(openingBook);
+        long start = System.nanoTime();
+        GameState state = game.state;
+        while (!state.isGameOver()) {
+            boolean aToMove = (state.colorToMove() == BitBoard.BLACK) == game.aIsBlack;
+            int side = aToMove ? 0 : 1;
+            long t = System.nanoTime();
+            int[] position = (aToMove ? engineA : engineB).search(state);
+            game.thinkMillis[side] += (System.nanoTime() - t) / 1000000;
+            game.moves[side]++;
+            if (position.length == 0) {
+                break;
+            }
+            for (int i = 0; i + 1 < position.length && !state.isGameOver(); i += 2) {
+                state.makeMove(position[i], position[i + 1]);
+            }
+        }
+        game.millis = (System.nanoTime() - start) / 1000000;
+
+        int winner = state.getWinner();
+        if (winner == 0) {
+            game.scoreA = 0.5;
+        } else {
+            game.scoreA = (winner == BitBoard.BLACK) == game.aIsBlack ? 1 : 0;
+        }
+        return game;
+    }
+
+    /**
+     * 从空棋盘开始双方随机下几步，每一子都落在已有棋子附近
+     */
+    private GameState randomOpening(Random random) {
+        GameState state = new GameState();
+        for (int step = 0; step < openingSteps && !state.isGameOver(); step++) {
+            int stones = state.stonesToPlace();
+            for (int i = 0; i < stones && !state.isGameOver(); i++) {
+                int cell = BookBuilder.randomCell(state, random);
+                state.makeMove(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 得分率对应的Elo差
+     */
+    static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(1);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int openingSteps = 2;
+        long seed = 1;
+        String record = null;
+        Config a = new Config();
+        Config b = new Config();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                usage("参数" + args[i] + "缺少值");
+            }
+            String value = args[i + 1];
+            try {
+                switch (args[i]) {
+                    case "--games":
+                        games = Integer.parseInt(value);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "--opening":
+                        openingSteps = Integer.parseInt(value);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "--record":
+                        record = value;
+                        break;
+                    case "--a":
+                        a = Config.parse(value);
+                        break;
+                    case "--b":
+                        b = Config.parse(value);
+                        break;
+                    default:
+                        usage("不能识别的参数：" + args[i]);
+                }
+            } catch (IllegalArgumentException e) {
+                //数字格式不对或者配置里有不能识别的键
+                usage("参数" + args[i] + "的值不对：" + e.getMessage());
+            } catch (IOException e) {
+                usage("参数" + args[i] + "的估值参数文件读取失败：" + e.getMessage());
+            }
+        }
+        if (games <= 0 || threads <= 0) {
+            usage("局数和线程数必须是正数");
+        }
+        System.out.printf("A: %s%nB: %s%n%d局，%d线程，随机开局%d步%n", a, b, games, threads, openingSteps);
+        SelfPlay match = new SelfPlay(a, b, openingSteps, seed);
+        GameRecordWriter recorder = record == null ? null : GameRecordWriter.append(Paths.get(record));
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Game>> futures = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> match.play(index)));
+        }
+        pool.shutdown();
+
+        //按提交的顺序汇总和输出，后面的局先下完时结果先留在Future里
+        double sum = 0;
+        double sumSquares = 0;
+        int wins = 0;
+        int losses = 0;
+        int draws = 0;
+        long totalMillis = 0;
+        long maxMillis = 0;
+        //一局出错时也要关闭棋谱文件，排队的局不再开始
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Game game;
+                try {
+                    game = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("第" + i + "局出错", e.getCause());
+                }
+                sum += game.scoreA;
+                sumSquares += game.scoreA * game.scoreA;
+                if (game.scoreA == 1) {
+                    wins++;
+                } else if (game.scoreA == 0) {
+                    losses++;
+                } else {
+                    draws++;
+                }
+                totalMillis += game.millis;
+                maxMillis = Math.max(maxMillis, game.millis);
+                if (recorder != null) {
+                    recorder.write(GameRecord.of(game.state));
+                }
+                System.out.printf(Locale.ROOT, "game %d: A=%s result=%s stones=%d timeMs=%d aMsPerMove=%d bMsPerMove=%d%n",
+                        game.index, game.aIsBlack ? "black" : "white",
+                        game.scoreA == 1 ? "A" : game.scoreA == 0 ? "B" : "draw", game.state.getCount(), game.millis,
+                        game.thinkMillis[0] / Math.max(1, game.moves[0]), game.thinkMillis[1] / Math.max(1, game.moves[1]));
+            }
+        } finally {
+            pool.shutdownNow();
+            if (recorder != null) {
+                recorder.close();
+            }
+        }
+        long wallMillis = (System.nanoTime() - start) / 1000000;
+
+        int n = futures.size();
+        double score = sum / n;
+        //每局得分的标准差，和棋多时比只按胜负算的区间窄
+        double deviation = Math.sqrt(Math.max(0, sumSquares / n - score * score));
+        double margin = Z95 * deviation / Math.sqrt(n);
+        System.out.printf(Locale.ROOT, "A胜%d 负%d 和%d，得分率%.3f%n", wins, losses, draws, score);
+        System.out.printf(Locale.ROOT, "Elo差 %.1f，95%%置信区间 [%.1f, %.1f]%n",
+                elo(score), elo(score - margin), elo(score + margin));
+        System.out.printf(Locale.ROOT, "每局平均%dms，最长%dms，总用时%ds%n",
+                totalMillis / Math.max(1, n), maxMillis, wallMillis / 1000);
+    }
+}
@@ -13,6 +13,7 @@ public class Six extends JFrame {
     private final JButton exitButton;
     private final ChessBoard boardPanel;
     JCheckBox computerFirst;
+    JCheckBox ponder;
     private final JLabel statusbar;
 
     public Six() {
@@ -21,17 +22,23 @@ public class Six extends JFrame {
         startButton = new JButton("开始");
         exitButton = new JButton("退出");
         computerFirst = new JCheckBox("AI先手");
+        //AI在你思考的时候也在后台思考，会占用一个CPU核，默认不开
+        ponder = new JCheckBox("后台思考", false);
         toolbar.add(startButton);
         toolbar.add(exitButton);
         toolbar.add(computerFirst);
+        toolbar.add(ponder);
         this.add(toolbar, BorderLayout.NORTH);
 
+        //状态栏和作者名放在同一个面板里，否则后加的会把状态栏盖住
+        JPanel southPanel = new JPanel(new BorderLayout());
         statusbar = new JLabel("请点击「开始」重新开始");
         statusbar.setBorder(BorderFactory.createEtchedBorder(EtchedBorder.RAISED));
-        this.add(statusbar, BorderLayout.SOUTH);
+        southPanel.add(statusbar, BorderLayout.CENTER);
 
         JLabel authorName = new JLabel(("By 徐雯、刘月明、杨可"));
-        this.add(authorName, BorderLayout.SOUTH);
+        southPanel.add(authorName, BorderLayout.EAST);
+        this.add(southPanel, BorderLayout.SOUTH);
 
         boardPanel = new ChessBoard(this);
         this.add(boardPanel, BorderLayout.CENTER);
@@ -63,12 +70,31 @@ public class Six extends JFrame {
         statusbar.setText("游戏结束");
     }
 
+    /**
+     * 计算机下完一步后显示这一步的搜索统计
+     */
+    public void displayStats(SearchStats stats) {
+        statusbar.setText("游戏进行中... AI上一步：" + stats.summary());
+    }
+
+    /**
+     * @param position 当前最佳着法，每个子先x后y
+     */
+    public void displayThinking(int depth, int[] position) {
+        StringBuilder text = new StringBuilder(String.format("AI思考中... 已搜索%d层，当前最佳位置", depth));
+        for (int i = 0; i + 1 < position.length; i += 2) {
+            text.append(String.format("(%d, %d)", position[i], position[i + 1]));
+        }
+        statusbar.setText(text.toString());
+    }
+
     class ActionMonitor implements ActionListener {
         public void actionPerformed(ActionEvent e) {
             if (e.getSource() == startButton) {
                 boardPanel.restartGame();
 
             } else if (e.getSource() == exitButton) {
+                boardPanel.stopThinking();
                 System.exit(0);
             }
         }
@@ -0,0 +1,109 @@
+package aiSix;
+
+/**
+ * 棋盘的8种对称
+ * 正方形棋盘旋转和翻转之后局势完全一样，把局面统一变换到一个标准方向，
+ * 置换表和开局库里一条记录就能对8个对称的局面都有效。
+ * 标准方向是变换后Zobrist哈希值最小的那个对称，哈希值相同时取序号小的。
+ * 对称的序号：0不变，1左右翻转，2上下翻转，3旋转180度，4沿主对角线翻转，
+ * 5、6旋转90度（互为逆变换），7沿副对角线翻转。开局库文件依赖这个编号，不能改。
+ */
+public class Symmetry {
+    public static final int COUNT = 8;
+
+    //按对称变换后的格子序号，下标是[对称][格子序号]
+    private static final short[][] CELL = new short[COUNT][BitBoard.CELLS];
+    private static final int[] INVERSE = {0, 1, 2, 3, 4, 6, 5, 7};
+
+    static {
+        int n = BitBoard.SIZE - 1;
+        for (int x = 0; x <= n; x++) {
+            for (int y = 0; y <= n; y++) {
+                int cell = BitBoard.cell(x, y);
+                CELL[0][cell] = (short) cell;
+                CELL[1][cell] = (short) BitBoard.cell(n - x, y);
+                CELL[2][cell] = (short) BitBoard.cell(x, n - y);
+                CELL[3][cell] = (short) BitBoard.cell(n - x, n - y);
+                CELL[4][cell] = (short) BitBoard.cell(y, x);
+                CELL[5][cell] = (short) BitBoard.cell(n - y, x);
+                CELL[6][cell] = (short) BitBoard.cell(y, n - x);
+                CELL[7][cell] = (short) BitBoard.cell(n - y, n - x);
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    /**
+     * @return 格子按symmetry变换后的格子序号
+     */
+    public static int transform(int cell, int symmetry) {
+        return CELL[symmetry][cell];
+    }
+
+    /**
+     * @return 把symmetry变换回去的对称
+     */
+    public static int inverse(int symmetry) {
+        return INVERSE[symmetry];
+    }
+
+    /**
+     * 变换一个按Evaluate.move打包的着法，两子时仍然是序号小的在前
+     * 没有的子（NO_CELL）保持不变，所以置换表的NO_MOVE变换后还是NO_MOVE
+     */
+    public static int transformMove(int move, int symmetry) {
+        int first = Evaluate.firstCell(move);
+        int second = Evaluate.secondCell(move);
+        if (first == Evaluate.NO_CELL) {
+            return move;
+        }
+        first = CELL[symmetry][first];
+        if (second == Evaluate.NO_CELL) {
+            return Evaluate.move(first, Evaluate.NO_CELL);
+        }
+        second = CELL[symmetry][second];
+        return Evaluate.move(Math.min(first, second), Math.max(first, second));
+    }
+
+    /**
+     * @return 在cell落子或提子时，局面按symmetry变换后的哈希值需要异或的值
+     */
+    public static long key(int symmetry, int color, int cell) {
+        return Zobrist.key(color, CELL[symmetry][cell]);
+    }
+
+    /**
+     * 从头计算局面按每种对称变换后的哈希值
+     *
+     * @param hashes 长度为COUNT，hashes[s]是按对称s变换后的哈希值
+     */
+    public static void hashes(BitBoard board, long[] hashes) {
+        for (int s = 0; s < COUNT; s++) {
+            hashes[s] = 0;
+        }
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            int color = board.get(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+            if (color != BitBoard.EMPTY) {
+                for (int s = 0; s < COUNT; s++) {
+                    hashes[s] ^= key(s, color, cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param hashes 局面按每种对称变换后的哈希值
+     * @return 标准方向：哈希值最小的对称，相同时取序号小的
+     */
+    public static int canonical(long[] hashes) {
+        int best = 0;
+        for (int s = 1; s < COUNT; s++) {
+            if (hashes[s] < hashes[best]) {
+                best = s;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,488 @@
+package aiSix;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * 威胁空间搜索（TSS）
+ * 六子棋的胜负主要由连续的冲棋决定：一条线上连续6格里有己方4子或5子、没有对方棋子，
+ * 也就是活四、眠四、活五、眠五这些棋型，对方必须在其中的空格落子，否则下一步就连六，这就是一个威胁。
+ * 一步棋造成的威胁要对方用几颗子才能全部挡住，就是这一步的威胁数：
+ * 威胁数达到3，对方一步两子挡不住，必胜；威胁数为2，对方两子都必须用来防守，没有反击的机会。
+ * 搜索只展开进攻方威胁数至少为2的着法，以及防守方所有能挡住全部威胁的着法，
+ * 分支比Alpha-Beta少得多，能很快找出十几步的连续冲棋取胜。
+ */
+public class ThreatSearch {
+    static final int DEFAULT_MAX_DEPTH = 6;//进攻方最多连续冲几步
+    static final int DEFAULT_MAX_NODES = 100000;//最多尝试的着法数，超出就放弃
+
+    private static final int WINDOW = 6;//连六的窗口长度
+    private static final int WINDOW_MASK = (1 << WINDOW) - 1;
+    private static final int MAX_WINDOWS = 64;//两子最多同时涉及的窗口数：2子 * 4方向 * 6个窗口；整个棋盘上只找第一个窗口
+    private static final int MAX_DEFENSES = 4;//威胁数为2时，能挡住的两子组合最多4种
+    private static final int MAX_FORCING = 512;//每层最多展开的威胁数为2的着法
+    private static final int NONE = -1;
+    private static final int TIME_CHECK_INTERVAL = 255;//每尝试这么多个着法看一次时间和停止标志
+
+    private final BitBoard board;
+    private final int attacker;//进攻方，1：黑方，2：白方
+    private final int defender;
+    private final int maxDepth;
+    private final int maxNodes;
+    private int nodes;
+    private long deadline = Long.MAX_VALUE;//必须结束搜索的时刻
+    private BooleanSupplier stopFlag = () -> false;//从其他线程要求停止搜索
+    private boolean aborted;//时间用完或者被要求停止，放弃搜索
+
+    private final int[][] attackCells;//每层进攻方可以考虑的空格
+    private final int[][] forcingMoves;//每层进攻方威胁数为2的着法，两子的格子序号各占16位
+    private final int[][] defenses;//每层防守方的着法，打包方式同上
+    private final int[] cellStamp = new int[BitBoard.CELLS];//收集空格时去重用
+    private int stamp;
+
+    //威胁窗口缓冲区，每个威胁窗口记下它的标识和其中的一两个空格
+    private final int[] windowKey = new int[MAX_WINDOWS];
+    private final int[] windowEmpty1 = new int[MAX_WINDOWS];
+    private final int[] windowEmpty2 = new int[MAX_WINDOWS];
+    private int windowCount;
+
+    private int[] winningMove;
+
+    /**
+     * @param board    当前局面，搜索时会临时落子，返回前全部撤回
+     * @param attacker 进攻方，1：黑方，2：白方
+     */
+    public ThreatSearch(BitBoard board, int attacker) {
+        this(board, attacker, DEFAULT_MAX_DEPTH, DEFAULT_MAX_NODES);
+    }
+
+    public ThreatSearch(BitBoard board, int attacker, int maxDepth, int maxNodes) {
+        this.board = board;
+        this.attacker = attacker;
+        this.defender = 3 - attacker;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        attackCells = new int[maxDepth + 1][BitBoard.CELLS];
+        forcingMoves = new int[maxDepth + 1][MAX_FORCING];
+        defenses = new int[maxDepth + 1][MAX_DEFENSES];
+    }
+
+    /**
+     * @param deadline 到这个时刻（System.currentTimeMillis）还没搜完就放弃
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param stopFlag 返回true时放弃搜索，搜索中每隔一定着法数查一次
+     */
+    public void setStopFlag(BooleanSupplier stopFlag) {
+        this.stopFlag = stopFlag;
+    }
+
+    /**
+     * 查找进攻方这一步（两子）开始的连续冲棋必胜
+     *
+     * @return 必胜的第一步两子坐标，先x后y；找不到或者中途放弃返回null
+     */
+    public int[] findWin() {
+        nodes = 0;
+        aborted = false;
+        winningMove = null;
+        if (attack(maxDepth, true)) {
+            return winningMove;
+        }
+        return null;
+    }
+
+    /**
+     * 进攻方走棋
+     *
+     * @param depth 进攻方还能走几步
+     * @param root  是否是根节点，根节点要记下必胜的着法
+     * @return 是否必胜
+     */
+    private boolean attack(int depth, boolean root) {
+        //已经有威胁没被挡住，这一步直接连六
+        if (findFirstWindow(attacker)) {
+            if (root) {
+                winningMove = completeSix();
+            }
+            return true;
+        }
+        //对方有威胁时要先防守，不在这里考虑
+        if (depth == 0 || findFirstWindow(defender)) {
+            return false;
+        }
+
+        int[] cells = attackCells[depth];
+        int[] forcing = forcingMoves[depth];
+        int count = collectAttackCells(cells);
+        int forcingCount = 0;
+        //先找威胁数达到3的着法，直接取胜；威胁数为2的着法记下来，之后再逐个展开
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (isOutOfBudget()) {
+                    return false;
+                }
+                int c1 = cells[i];
+                int c2 = cells[j];
+                put(c1, attacker);
+                put(c2, attacker);
+                findWindows(attacker, c1, c2);
+                int threats = countBlockers();
+                remove(c2);
+                remove(c1);
+                if (threats >= 3) {
+                    if (root) {
+                        winningMove = toPosition(c1, c2);
+                    }
+                    return true;
+                }
+                if (threats == 2 && forcingCount < MAX_FORCING) {
+                    forcing[forcingCount++] = c1 | (c2 << 16);
+                }
+            }
+        }
+
+        for (int k = 0; k < forcingCount; k++) {
+            int c1 = forcing[k] & 0xFFFF;
+            int c2 = forcing[k] >>> 16;
+            put(c1, attacker);
+            put(c2, attacker);
+            findWindows(attacker, c1, c2);
+            boolean win = defend(depth);
+            remove(c2);
+            remove(c1);
+            if (win) {
+                if (root) {
+                    winningMove = toPosition(c1, c2);
+                }
+                return true;
+            }
+            if (nodes > maxNodes || aborted) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 数一个着法，超出着法数、时间用完或者被要求停止时返回true
+     */
+    private boolean isOutOfBudget() {
+        if (++nodes > maxNodes) {
+            return true;
+        }
+        if ((nodes & TIME_CHECK_INTERVAL) == 0
+                && (System.currentTimeMillis() >= deadline || stopFlag.getAsBoolean())) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    /**
+     * 防守方用两子挡住缓冲区里的所有威胁，每一种挡法进攻方都要能继续取胜
+     */
+    private boolean defend(int depth) {
+        int[] moves = defenses[depth];
+        int count = blockingMoves(moves);
+        for (int k = 0; k < count; k++) {
+            int x = moves[k] & 0xFFFF;
+            int y = moves[k] >>> 16;
+            put(x, defender);
+            put(y, defender);
+            boolean win = attack(depth - 1, false);
+            remove(y);
+            remove(x);
+            if (!win) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(int cell, int color) {
+        board.put(BitBoard.colOf(cell), BitBoard.rowOf(cell), color);
+    }
+
+    private void remove(int cell) {
+        board.remove(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+    }
+
+    private static int[] toPosition(int c1, int c2) {
+        return new int[]{BitBoard.colOf(c1), BitBoard.rowOf(c1), BitBoard.colOf(c2), BitBoard.rowOf(c2)};
+    }
+
+    /*----------------------------威胁窗口------------------------------*/
+
+    /**
+     * 在整个棋盘上找一方的一个威胁窗口，找到时缓冲区里只放这一个
+     * 调用的地方只关心有没有威胁，连六时也只用一个窗口，不用收集全部；
+     * 棋子多时整个棋盘的威胁窗口可能比缓冲区还多
+     *
+     * @return 是否有威胁
+     */
+    private boolean findFirstWindow(int color) {
+        windowCount = 0;
+        int key = firstWindow(board, color);
+        if (key == NONE) {
+            return false;
+        }
+        int d = key >>> 16;
+        int index = (key >>> 8) & 0xFF;
+        addWindow(d, index, key & 0xFF, board.line(color, d, index), board.line(3 - color, d, index));
+        return true;
+    }
+
+    /**
+     * 一方是否有威胁，也就是这一步就能连六：某个连续6格的窗口里有己方4子以上、没有对方棋子
+     * 不需要构造ThreatSearch，调参时用来跳过已经分出胜负的局面
+     */
+    static boolean hasThreat(BitBoard board, int color) {
+        return firstWindow(board, color) != NONE;
+    }
+
+    /**
+     * @return 第一个威胁窗口的标识，方向、线的序号和起点各占8位；没有时返回NONE
+     */
+    private static int firstWindow(BitBoard board, int color) {
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            for (int index = 0; index < BitBoard.lineCount(d); index++) {
+                int mask = BitBoard.lineMask(d, index);
+                int mine = board.line(color, d, index);
+                if (Integer.bitCount(mine) < 4 || Integer.bitCount(mask) < WINDOW) {
+                    continue;
+                }
+                int others = board.line(3 - color, d, index);
+                int last = 31 - Integer.numberOfLeadingZeros(mask) - WINDOW + 1;
+                for (int s = Integer.numberOfTrailingZeros(mask); s <= last; s++) {
+                    if (isThreat(mine, others, s)) {
+                        return windowKey(d, index, s);
+                    }
+                }
+            }
+        }
+        return NONE;
+    }
+
+    private static boolean isThreat(int mine, int others, int s) {
+        return ((others >>> s) & WINDOW_MASK) == 0 && Integer.bitCount((mine >>> s) & WINDOW_MASK) >= 4;
+    }
+
+    private static int windowKey(int d, int index, int s) {
+        return (d << 16) | (index << 8) | s;
+    }
+
+    /**
+     * 只查找经过c1或c2的威胁窗口，c1、c2是刚下的两子，别的窗口在这一步之前都已经挡住了
+     */
+    private void findWindows(int color, int c1, int c2) {
+        windowCount = 0;
+        findWindowsThrough(color, c1);
+        findWindowsThrough(color, c2);
+    }
+
+    private void findWindowsThrough(int color, int cell) {
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            int index = BitBoard.LINE_INDEX[d][cell];
+            int pos = BitBoard.LINE_POS[d][cell];
+            int mask = BitBoard.lineMask(d, index);
+            int mine = board.line(color, d, index);
+            int others = board.line(3 - color, d, index);
+            for (int s = Math.max(0, pos - WINDOW + 1); s <= pos; s++) {
+                if (((mask >>> s) & WINDOW_MASK) == WINDOW_MASK) {
+                    addWindow(d, index, s, mine, others);
+                }
+            }
+        }
+    }
+
+    /**
+     * 窗口里有4子以上且没有对方棋子就是一个威胁，记下其中的空格
+     */
+    private void addWindow(int d, int index, int s, int mine, int others) {
+        if (!isThreat(mine, others, s)) {
+            return;
+        }
+        int stones = (mine >>> s) & WINDOW_MASK;
+        int key = windowKey(d, index, s);
+        for (int k = 0; k < windowCount; k++) {
+            if (windowKey[k] == key) {
+                return;
+            }
+        }
+        int empty = ~stones & WINDOW_MASK;
+        windowKey[windowCount] = key;
+        windowEmpty1[windowCount] = empty == 0 ? NONE : BitBoard.lineCell(d, index, s + Integer.numberOfTrailingZeros(empty));
+        empty &= empty - 1;
+        windowEmpty2[windowCount] = empty == 0 ? NONE : BitBoard.lineCell(d, index, s + Integer.numberOfTrailingZeros(empty));
+        windowCount++;
+    }
+
+    /**
+     * 挡住缓冲区里所有威胁最少要几子
+     *
+     * @return 0、1、2，或者3表示两子挡不住
+     */
+    private int countBlockers() {
+        if (windowCount == 0) {
+            return 0;
+        }
+        for (int k = 0; k < windowCount; k++) {
+            if (windowEmpty1[k] == NONE) {
+                //已经连六
+                return 3;
+            }
+        }
+        int a = windowEmpty1[0];
+        int b = windowEmpty2[0];
+        if (hitsAll(a, NONE) || (b != NONE && hitsAll(b, NONE))) {
+            return 1;
+        }
+        if (pairFor(a) != NONE || (b != NONE && pairFor(b) != NONE)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * 找出所有能挡住全部威胁的两子组合
+     * 第一个窗口必须被其中一子挡住，设为x；另一子y必须挡住x挡不住的第一个窗口，
+     * 所以x、y都只有一两种选择
+     *
+     * @return 组合数
+     */
+    private int blockingMoves(int[] moves) {
+        int count = 0;
+        for (int i = 0; i < 2; i++) {
+            int x = i == 0 ? windowEmpty1[0] : windowEmpty2[0];
+            if (x == NONE) {
+                continue;
+            }
+            int j = firstUnblocked(x);
+            if (j < 0) {
+                continue;
+            }
+            for (int t = 0; t < 2; t++) {
+                int y = t == 0 ? windowEmpty1[j] : windowEmpty2[j];
+                if (y == NONE || !hitsAll(x, y)) {
+                    continue;
+                }
+                int m = Math.min(x, y) | (Math.max(x, y) << 16);
+                boolean duplicate = false;
+                for (int k = 0; k < count; k++) {
+                    duplicate |= moves[k] == m;
+                }
+                if (!duplicate) {
+                    moves[count++] = m;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return 和x一起能挡住全部威胁的另一子，没有时返回NONE
+     */
+    private int pairFor(int x) {
+        int j = firstUnblocked(x);
+        if (j < 0) {
+            return NONE;
+        }
+        if (hitsAll(x, windowEmpty1[j])) {
+            return windowEmpty1[j];
+        }
+        if (windowEmpty2[j] != NONE && hitsAll(x, windowEmpty2[j])) {
+            return windowEmpty2[j];
+        }
+        return NONE;
+    }
+
+    private int firstUnblocked(int x) {
+        for (int k = 0; k < windowCount; k++) {
+            if (!hits(k, x, NONE)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private boolean hitsAll(int x, int y) {
+        for (int k = 0; k < windowCount; k++) {
+            if (!hits(k, x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hits(int k, int x, int y) {
+        int a = windowEmpty1[k];
+        int b = windowEmpty2[k];
+        return a == x || (b != NONE && b == x) || (y != NONE && (a == y || b == y));
+    }
+
+    /*----------------------------进攻方的候选空格------------------------------*/
+
+    /**
+     * 收集进攻方可以落子的空格：所在的某个窗口里已有己方两子以上且没有对方棋子，
+     * 下两子后才有可能形成威胁
+     *
+     * @return 空格数
+     */
+    private int collectAttackCells(int[] cells) {
+        stamp++;
+        int count = 0;
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            for (int index = 0; index < BitBoard.lineCount(d); index++) {
+                int mask = BitBoard.lineMask(d, index);
+                int mine = board.line(attacker, d, index);
+                if (Integer.bitCount(mine) < 2 || Integer.bitCount(mask) < WINDOW) {
+                    continue;
+                }
+                int others = board.line(defender, d, index);
+                int last = 31 - Integer.numberOfLeadingZeros(mask) - WINDOW + 1;
+                for (int s = Integer.numberOfTrailingZeros(mask); s <= last; s++) {
+                    int stones = (mine >>> s) & WINDOW_MASK;
+                    if (((others >>> s) & WINDOW_MASK) != 0 || Integer.bitCount(stones) < 2) {
+                        continue;
+                    }
+                    for (int empty = ~stones & WINDOW_MASK; empty != 0; empty &= empty - 1) {
+                        int cell = BitBoard.lineCell(d, index, s + Integer.numberOfTrailingZeros(empty));
+                        if (cellStamp[cell] != stamp) {
+                            cellStamp[cell] = stamp;
+                            cells[count++] = cell;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 缓冲区里已有进攻方的威胁时，给出直接连六的两子
+     */
+    private int[] completeSix() {
+        int first = windowEmpty1[0];
+        int second = windowEmpty2[0];
+        if (first == NONE) {
+            //已经连六，不会走到这里
+            return null;
+        }
+        if (second == NONE) {
+            //五子只差一子，另一子随便下在一个空位
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                if (cell != first && board.isEmpty(cell)) {
+                    second = cell;
+                    break;
+                }
+            }
+        }
+        if (second == NONE) {
+            return new int[]{BitBoard.colOf(first), BitBoard.rowOf(first)};
+        }
+        return toPosition(first, second);
+    }
+}
@@ -0,0 +1,124 @@
+package aiSix;
+
+import java.util.Arrays;
+
+/**
+ * 置换表
+ * 不同的落子顺序会走到相同的局面，用局面的Zobrist哈希值保存已经搜索过的结果，
+ * 再次遇到时直接使用或者至少先搜上次的最佳着法。
+ * 表的大小固定，每个位置只存一项，按深度优先替换：深度更深的结果不会被较浅的结果覆盖，
+ * 但上一次搜索留下的结果总是可以被替换。
+ * 多个搜索线程共用一张表且不加锁：保存的键是哈希值和数据的异或，
+ * 读出时键和数据对不上（另一个线程只写了一半）就当作没有查到。
+ */
+public class TranspositionTable {
+    //分值的类型
+    public static final int EXACT = 0;//准确值
+    public static final int LOWER = 1;//下界，真实值不小于分值（发生了beta截断）
+    public static final int UPPER = 2;//上界，真实值不大于分值（没有一步超过alpha）
+
+    public static final int MOVE_BITS = 18;
+    public static final int NO_MOVE = (1 << MOVE_BITS) - 1;//没有最佳着法
+
+    //一项数据按位打包：0-31分值，32-49着法，50-56深度，57-58类型，59-62第几次搜索，63有效位
+    private static final int MOVE_SHIFT = 32;
+    private static final int DEPTH_SHIFT = 50;
+    private static final int BOUND_SHIFT = 57;
+    private static final int GENERATION_SHIFT = 59;
+    private static final long VALID = 1L << 63;
+
+    //测试里直接改写一半来模拟另一个线程只写了一半
+    final long[] keys;//哈希值 ^ 数据
+    final long[] data;
+    private final int mask;
+    private int generation;//第几次搜索，只保留低4位
+
+    /**
+     * @param sizeBits 表的大小为 2^sizeBits 项
+     */
+    public TranspositionTable(int sizeBits) {
+        keys = new long[1 << sizeBits];
+        data = new long[1 << sizeBits];
+        mask = (1 << sizeBits) - 1;
+    }
+
+    /**
+     * 开始新的一次搜索，之前的结果都变成可以替换的旧数据
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xF;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+        generation = 0;
+    }
+
+    /**
+     * 查找一个局面
+     *
+     * @return 找到时返回打包的数据，用score、depth等方法解开；找不到返回0
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        if ((entry & VALID) != 0 && (keys[index] ^ entry) == key) {
+            return entry;
+        }
+        return 0;
+    }
+
+    /**
+     * 保存一个局面的搜索结果
+     *
+     * @param depth 搜索的深度
+     * @param score 分值
+     * @param bound 分值的类型，EXACT、LOWER或UPPER
+     * @param move  最佳着法，没有时传NO_MOVE
+     */
+    public void store(long key, int depth, int score, int bound, int move) {
+        int index = (int) key & mask;
+        long old = data[index];
+        if ((old & VALID) != 0) {
+            boolean sameKey = (keys[index] ^ old) == key;
+            boolean oldSearch = generation(old) != generation;
+            //深度优先替换
+            if (!sameKey && !oldSearch && depth(old) > depth) {
+                return;
+            }
+            if (sameKey && move == NO_MOVE) {
+                //保留之前的最佳着法
+                move = move(old);
+            }
+        }
+        long entry = VALID
+                | ((long) generation << GENERATION_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) depth << DEPTH_SHIFT)
+                | ((long) move << MOVE_SHIFT)
+                | (score & 0xFFFFFFFFL);
+        keys[index] = key ^ entry;
+        data[index] = entry;
+    }
+
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & NO_MOVE;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0x7F;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xF;
+    }
+}
@@ -0,0 +1,364 @@
+package aiSix;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 用棋谱的胜负自动调估值参数（Texel方法）
+ * 局面估值是棋型次数和棋型分值的点积，用sigmoid(K * 估值)预测该下的一方的得分，
+ * 调整分值使预测和棋谱里的实际结果的均方误差最小。
+ * <p>
+ * 每个局面只在读棋谱时数一次棋型，之后每一轮只做点积：次数按棋型分列存放，
+ * 每一列是所有局面的一个short数组，局面分成批在线程池里并行计算，
+ * 每批的中间结果放在预先分配的数组里，逐个局面计算时不分配内存，内层循环都是对连续数组的同一种运算，JIT可以向量化。
+ * 分值在对数空间用Adam优化，分值相差几个数量级也能用同一个步长，而且保持为正。
+ * 位置价值的倍数CENTER不影响局面估值，这里不调。
+ * <p>
+ * 用法：java -cp aisix.jar aiSix.Tuner 输出文件 棋谱文件... [--iterations 轮数] [--threads 线程数] [--skip 跳过的开局子数] [--rate 步长]
+ * 棋谱可以是界面保存的，也可以是SelfPlay --record生成的；输出的参数文件可以用 -DaiSix.weights 或者SelfPlay的weights=加载。
+ */
+public class Tuner {
+    private static final int BATCH = 1 << 14;//每批的局面数
+    private static final double BETA1 = 0.9;//Adam的一阶矩衰减
+    private static final double BETA2 = 0.999;//Adam的二阶矩衰减
+    private static final double EPSILON = 1e-8;
+    private static final String USAGE = "用法：Tuner 输出文件 棋谱文件... [--iterations 轮数] [--threads 线程数] "
+            + "[--skip 跳过的开局子数] [--rate 步长]";
+
+    private final int[] params;//要调的参数在Weights里的下标
+    private short[][] counts;//counts[j][i]：第i个局面里该下的一方第params[j]种棋型的次数减去另一方的次数
+    private float[] results;//第i个局面该下的一方最后的得分，赢1，和0.5，输0
+    private int size;//局面数
+
+    //每一轮并行计算用的数组，读完棋谱后分配一次；测试里直接设分值和K，对照数值梯度
+    final double[] weights;//当前的分值，和params对应
+    double scale;//sigmoid的缩放系数K
+    private double[][] batchValues;//每批局面的估值，计算梯度时复用为每个局面的误差系数
+    private double[][] batchGradients;//每批对每个参数的偏导数之和，最后一项是误差平方和
+    private List<Callable<Void>> tasks;
+
+    public Tuner(Weights initial) {
+        int n = 0;
+        int[] p = new int[Weights.COUNT];
+        for (int i = 0; i < PatternTable.PATTERNS; i++) {
+            if (Weights.isTunable(i)) {
+                p[n++] = i;
+            }
+        }
+        params = Arrays.copyOf(p, n);
+        weights = new double[n];
+        for (int j = 0; j < n; j++) {
+            weights[j] = initial.get(params[j]);
+        }
+        counts = new short[n][1024];
+        results = new float[1024];
+    }
+
+    /**
+     * 收录棋谱里所有有结果的对局的局面
+     * 每一步开始时取一次局面，跳过开局的前skip个子和该下的一方这一步就能连六的局面（有窗口里己方4子以上、没有对方棋子）
+     */
+    public void addGames(GameArchive archive, int skip) {
+        int[] black = new int[PatternTable.PATTERNS];
+        int[] white = new int[PatternTable.PATTERNS];
+        for (int g = 0; g < archive.size(); g++) {
+            int result = archive.getResult(g);
+            if (result == GameRecord.UNFINISHED) {
+                continue;
+            }
+            GameState state = new GameState();
+            for (int i = 0; i < archive.getCount(g); i++) {
+                int cell = archive.getCell(g, i);
+                state.makeMove(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+                if (state.isGameOver() || state.getCount() < skip || state.stonesToPlace() != 2) {
+                    //只取每一步开始时的局面
+                    continue;
+                }
+                int color = state.colorToMove();
+                if (ThreatSearch.hasThreat(state.getBoard(), color)) {
+                    continue;
+                }
+                Evaluate.countPatterns(state.getBoard(), BitBoard.BLACK, black);
+                Evaluate.countPatterns(state.getBoard(), BitBoard.WHITE, white);
+                int[] mine = color == BitBoard.BLACK ? black : white;
+                int[] others = color == BitBoard.BLACK ? white : black;
+                float score = result == GameRecord.DRAW ? 0.5f : result == color ? 1 : 0;
+                add(mine, others, score);
+            }
+        }
+    }
+
+    void add(int[] mine, int[] others, float score) {
+        if (size == results.length) {
+            results = Arrays.copyOf(results, size * 2);
+            for (int j = 0; j < params.length; j++) {
+                counts[j] = Arrays.copyOf(counts[j], size * 2);
+            }
+        }
+        for (int j = 0; j < params.length; j++) {
+            counts[j][size] = (short) (mine[params[j]] - others[params[j]]);
+        }
+        results[size] = score;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 读完棋谱后准备并行计算：每批一个任务，每个任务有自己的中间结果数组
+     */
+    void prepare() {
+        int batches = (size + BATCH - 1) / BATCH;
+        batchValues = new double[batches][BATCH];
+        batchGradients = new double[batches][params.length + 1];
+        tasks = new ArrayList<>(batches);
+        for (int b = 0; b < batches; b++) {
+            int batch = b;
+            tasks.add(() -> {
+                computeBatch(batch);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * 一批局面的误差平方和与对每个参数的偏导数
+     */
+    private void computeBatch(int batch) {
+        int start = batch * BATCH;
+        int n = Math.min(BATCH, size - start);
+        double[] values = batchValues[batch];
+        double[] gradient = batchGradients[batch];
+        //估值 = 次数和分值的点积，按列累加
+        Arrays.fill(values, 0, n, 0);
+        for (int j = 0; j < params.length; j++) {
+            short[] column = counts[j];
+            double w = weights[j];
+            for (int i = 0; i < n; i++) {
+                values[i] += w * column[start + i];
+            }
+        }
+        //误差，之后values[i]改存误差对估值的导数
+        double error = 0;
+        for (int i = 0; i < n; i++) {
+            double predicted = 1 / (1 + Math.exp(-scale * values[i]));
+            double diff = predicted - results[start + i];
+            error += diff * diff;
+            values[i] = 2 * diff * predicted * (1 - predicted) * scale;
+        }
+        for (int j = 0; j < params.length; j++) {
+            short[] column = counts[j];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += values[i] * column[start + i];
+            }
+            gradient[j] = sum;
+        }
+        gradient[params.length] = error;
+    }
+
+    /**
+     * 在线程池里计算所有局面的均方误差
+     *
+     * @param gradient 不为null时保存均方误差对每个分值的偏导数
+     */
+    double compute(ExecutorService pool, double[] gradient) throws InterruptedException {
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        double error = 0;
+        if (gradient != null) {
+            Arrays.fill(gradient, 0);
+        }
+        for (double[] g : batchGradients) {
+            error += g[params.length];
+            if (gradient != null) {
+                for (int j = 0; j < params.length; j++) {
+                    gradient[j] += g[j] / size;
+                }
+            }
+        }
+        return error / size;
+    }
+
+    /**
+     * 先按现在的分值找使误差最小的K，再调分值
+     *
+     * @param iterations Adam的轮数
+     * @param rate       对数空间的步长
+     * @return 调好的参数，CENTER和初始值一样
+     */
+    public Weights tune(Weights initial, int iterations, double rate, int threads) throws InterruptedException {
+        if (size == 0) {
+            throw new IllegalStateException("棋谱里没有可用的局面");
+        }
+        prepare();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            fitScale(pool);
+            double[] gradient = new double[params.length];
+            double[] m = new double[params.length];
+            double[] v = new double[params.length];
+            double error = compute(pool, gradient);
+            System.out.printf(Locale.ROOT, "%d个局面，K=%.3g，初始误差%.6f%n", size, scale, error);
+            for (int j = 0; j < params.length; j++) {
+                if (isAbsent(j)) {
+                    //只用于计算空位的价值，梯度总是0
+                    System.out.println(Weights.nameOf(params[j]) + "在局面估值里没有出现，只受棋型顺序的约束");
+                }
+            }
+            for (int t = 1; t <= iterations; t++) {
+                for (int j = 0; j < params.length; j++) {
+                    //对数空间的梯度 = 对分值的偏导数 * 分值
+                    double g = gradient[j] * weights[j];
+                    m[j] = BETA1 * m[j] + (1 - BETA1) * g;
+                    v[j] = BETA2 * v[j] + (1 - BETA2) * g * g;
+                    double step = rate * (m[j] / (1 - Math.pow(BETA1, t))) / (Math.sqrt(v[j] / (1 - Math.pow(BETA2, t))) + EPSILON);
+                    weights[j] = Math.max(1, Math.min(Weights.MAX_VALUE, weights[j] * Math.exp(-step)));
+                }
+                keepOrder();
+                error = compute(pool, gradient);
+                if (t % 50 == 0 || t == iterations) {
+                    System.out.printf(Locale.ROOT, "第%d轮，误差%.6f%n", t, error);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        int[] values = initial.toArray();
+        for (int j = 0; j < params.length; j++) {
+            values[params[j]] = (int) Math.round(weights[j]);
+        }
+        return new Weights(values);
+    }
+
+    /**
+     * @return 所有局面里都没有第j个参数的棋型
+     */
+    private boolean isAbsent(int j) {
+        short[] column = counts[j];
+        for (int i = 0; i < size; i++) {
+            if (column[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 棋型越强分值不能越低：PatternTable里的棋型从弱到强排列，分值改成不小于前一种
+     * 局面估值只看得到每条线上的活棋型，只按胜负拟合时强的棋型可能被压到比弱的还低，
+     * 而选可选点时同样用这些分值，顺序乱了会漏掉关键的点
+     */
+    private void keepOrder() {
+        for (int j = 1; j < params.length; j++) {
+            weights[j] = Math.max(weights[j], weights[j - 1]);
+        }
+    }
+
+    /**
+     * 分值不变，在对数空间用黄金分割搜索使误差最小的K
+     */
+    private void fitScale(ExecutorService pool) throws InterruptedException {
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double lo = Math.log(1e-6);
+        double hi = Math.log(1e-1);
+        for (int i = 0; i < 40; i++) {
+            double a = hi - ratio * (hi - lo);
+            double b = lo + ratio * (hi - lo);
+            scale = Math.exp(a);
+            double errorA = compute(pool, null);
+            scale = Math.exp(b);
+            double errorB = compute(pool, null);
+            if (errorA < errorB) {
+                hi = b;
+            } else {
+                lo = a;
+            }
+        }
+        scale = Math.exp((lo + hi) / 2);
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(1);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int iterations = 500;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int skip = 6;
+        double rate = 0.02;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                files.add(args[i]);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                usage("参数" + args[i] + "缺少值");
+            }
+            String value = args[i + 1];
+            try {
+                switch (args[i]) {
+                    case "--iterations":
+                        iterations = Integer.parseInt(value);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "--skip":
+                        skip = Integer.parseInt(value);
+                        break;
+                    case "--rate":
+                        rate = Double.parseDouble(value);
+                        break;
+                    default:
+                        usage("不能识别的参数：" + args[i]);
+                }
+            } catch (NumberFormatException e) {
+                usage("参数" + args[i] + "的值不对：" + e.getMessage());
+            }
+            i++;
+        }
+        if (files.size() < 2) {
+            usage("缺少输出文件或者棋谱文件");
+        }
+        if (iterations <= 0 || threads <= 0) {
+            usage("轮数和线程数必须是正数");
+        }
+        if (skip < 0 || !(rate > 0)) {
+            usage("跳过的开局子数不能是负数，步长必须是正数");
+        }
+
+        Weights initial = Weights.loadDefault();
+        Tuner tuner = new Tuner(initial);
+        long start = System.nanoTime();
+        for (String file : files.subList(1, files.size())) {
+            tuner.addGames(GameArchive.load(Paths.get(file)), skip);
+        }
+        System.out.printf("读取棋谱用时%dms%n", (System.nanoTime() - start) / 1000000);
+
+        start = System.nanoTime();
+        Weights tuned = tuner.tune(initial, iterations, rate, threads);
+        System.out.printf("调参用时%dms%n", (System.nanoTime() - start) / 1000000);
+        tuned.write(Paths.get(files.get(0)));
+        System.out.print(tuned);
+    }
+}
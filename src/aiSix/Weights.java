@@ -0,0 +1,150 @@
+package aiSix;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 估值的参数向量
+ * 前PatternTable.PATTERNS项是每种棋型的分值，下标就是PatternTable里的棋型，最后一项CENTER是位置价值的倍数。
+ * NONE固定为0，SIX固定为Evaluate.SIX：搜索用这个分值判断已经连六，不能调。
+ * <p>
+ * 文件格式是Properties，每行 棋型名=分值，没写的项用默认值。
+ */
+public class Weights {
+    private static final Logger LOG = Logger.getLogger(Weights.class.getName());
+
+    public static final int CENTER = PatternTable.PATTERNS;//位置价值的倍数，只影响选可选点，不影响局面估值
+    public static final int COUNT = PatternTable.PATTERNS + 1;//参数的个数
+    static final int MAX_VALUE = Evaluate.SIX / 10;//可调的分值的上限，保证几个棋型加起来也到不了连六
+
+    private static final String[] NAMES = {"NONE", "MIAN_TWO", "HUO_TWO", "MIAN_THREE", "MENGLONG_THREE",
+            "HUO_THREE", "MIAN_FOUR", "HUO_FOUR", "MIAN_FIVE", "HUO_FIVE", "SIX", "CENTER"};
+
+    /**
+     * 手工设定的默认值
+     */
+    public static final Weights DEFAULT = new Weights(new int[]{0, Evaluate.MIAN_TWO, Evaluate.HUO_TWO,
+            Evaluate.MIAN_THREE, Evaluate.MENGLONG_THREE, Evaluate.HUO_THREE, Evaluate.MIAN_FOUR, Evaluate.HUO_FOUR,
+            Evaluate.MIAN_FIVE, Evaluate.HUO_FIVE, Evaluate.SIX, 1});
+
+    private final int[] values;
+
+    /**
+     * @param values COUNT个参数，复制一份；不能调的项改回固定值，其余的限制在0到MAX_VALUE之间
+     */
+    public Weights(int[] values) {
+        if (values.length != COUNT) {
+            throw new IllegalArgumentException("参数个数应为" + COUNT + "：" + values.length);
+        }
+        this.values = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            this.values[i] = isTunable(i) ? Math.max(0, Math.min(MAX_VALUE, values[i])) : 0;
+        }
+        this.values[PatternTable.SIX] = Evaluate.SIX;
+    }
+
+    /**
+     * @return 第i项能不能调
+     */
+    public static boolean isTunable(int i) {
+        return i != PatternTable.NONE && i != PatternTable.SIX;
+    }
+
+    public static String nameOf(int i) {
+        return NAMES[i];
+    }
+
+    public int get(int i) {
+        return values[i];
+    }
+
+    /**
+     * @return 所有参数的副本
+     */
+    public int[] toArray() {
+        return values.clone();
+    }
+
+    /**
+     * @return 按棋型查分值的表，下标是PatternTable里的棋型
+     */
+    int[] patternScores() {
+        return Arrays.copyOf(values, PatternTable.PATTERNS);
+    }
+
+    public static Weights read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+        int[] values = DEFAULT.toArray();
+        for (String name : properties.stringPropertyNames()) {
+            int i = Arrays.asList(NAMES).indexOf(name);
+            if (i < 0) {
+                throw new IOException("不能识别的参数：" + name);
+            }
+            try {
+                values[i] = Integer.parseInt(properties.getProperty(name).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("参数不是整数：" + name + "=" + properties.getProperty(name), e);
+            }
+        }
+        return new Weights(values);
+    }
+
+    public void write(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(toString());
+        }
+    }
+
+    /**
+     * 界面启动时加载的参数
+     * 用 -DaiSix.weights=文件 指定，没有指定或者读取失败时用默认值
+     */
+    public static Weights loadDefault() {
+        String file = System.getProperty("aiSix.weights");
+        if (file == null) {
+            return DEFAULT;
+        }
+        try {
+            return read(Paths.get(file));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "估值参数加载失败，使用默认值", e);
+            return DEFAULT;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Weights && Arrays.equals(values, ((Weights) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    /**
+     * @return 文件格式的文本，每个能调的参数一行
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < COUNT; i++) {
+            if (isTunable(i)) {
+                s.append(NAMES[i]).append('=').append(values[i]).append(System.lineSeparator());
+            }
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package aiSix;
+
+import java.util.Random;
+
+/**
+ * Zobrist哈希
+ * 每个格子的每种颜色对应一个随机的64位数，局面的哈希值就是所有棋子对应随机数的异或，
+ * 落子和提子都只需要异或一次，可以在搜索中增量维护
+ */
+public class Zobrist {
+    //下标1：黑棋，2：白棋
+    private static final long[][] KEYS = new long[3][BitBoard.CELLS];
+
+    static {
+        //固定种子，保证每次运行的哈希值相同
+        Random random = new Random(0x5EED_A15EL);
+        for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                KEYS[color][cell] = random.nextLong();
+            }
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @return 在该格落子或提子时需要异或的值
+     */
+    public static long key(int color, int cell) {
+        return KEYS[color][cell];
+    }
+}
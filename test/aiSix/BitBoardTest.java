@@ -0,0 +1,120 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BitBoardTest {
+    private static final int[] DX = {1, 0, 1, 1};
+    private static final int[] DY = {0, 1, 1, -1};
+
+    /**
+     * 随机棋盘
+     */
+    static BitBoard randomBoard(Random random, int stones) {
+        BitBoard board = new BitBoard();
+        for (int i = 0; i < stones; i++) {
+            int col = random.nextInt(BitBoard.SIZE);
+            int row = random.nextInt(BitBoard.SIZE);
+            if (board.isEmpty(col, row)) {
+                board.put(col, row, 1 + random.nextInt(2));
+            }
+        }
+        return board;
+    }
+
+    /**
+     * 逐格数经过(col, row)的连子，(col, row)当作已经落子
+     */
+    private static boolean isSixByScan(BitBoard board, int col, int row, int color) {
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            int count = 1;
+            for (int sign = -1; sign <= 1; sign += 2) {
+                int x = col + sign * DX[d];
+                int y = row + sign * DY[d];
+                while (x >= 0 && x < BitBoard.SIZE && y >= 0 && y < BitBoard.SIZE && board.get(x, y) == color) {
+                    count++;
+                    x += sign * DX[d];
+                    y += sign * DY[d];
+                }
+            }
+            if (count >= 6) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void linesMatchCells() {
+        Random random = new Random(1);
+        for (int t = 0; t < 100; t++) {
+            BitBoard board = randomBoard(random, random.nextInt(200));
+            int count = 0;
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                int col = BitBoard.colOf(cell);
+                int row = BitBoard.rowOf(cell);
+                int color = board.get(col, row);
+                if (color != BitBoard.EMPTY) {
+                    count++;
+                }
+                for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+                    int index = BitBoard.LINE_INDEX[d][cell];
+                    int pos = BitBoard.LINE_POS[d][cell];
+                    assertEquals(cell, BitBoard.lineCell(d, index, pos));
+                    for (int c = BitBoard.BLACK; c <= BitBoard.WHITE; c++) {
+                        assertEquals(color == c, ((board.line(c, d, index) >>> pos) & 1) != 0);
+                    }
+                }
+            }
+            assertEquals(count, board.getCount());
+        }
+    }
+
+    @Test
+    void isSixMatchesScan() {
+        Random random = new Random(2);
+        for (int t = 0; t < 300; t++) {
+            BitBoard board = randomBoard(random, 100 + random.nextInt(150));
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                int col = BitBoard.colOf(cell);
+                int row = BitBoard.rowOf(cell);
+                if (!board.isEmpty(cell)) {
+                    continue;
+                }
+                for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+                    assertEquals(isSixByScan(board, col, row, color), board.isSix(col, row, color),
+                            "col=" + col + " row=" + row + " color=" + color);
+                }
+            }
+        }
+    }
+
+    @Test
+    void removeRestoresBoard() {
+        Random random = new Random(3);
+        BitBoard board = randomBoard(random, 80);
+        BitBoard copy = board.copy();
+        int col;
+        int row;
+        do {
+            col = random.nextInt(BitBoard.SIZE);
+            row = random.nextInt(BitBoard.SIZE);
+        } while (!board.isEmpty(col, row));
+        board.put(col, row, BitBoard.WHITE);
+        assertFalse(board.isEmpty(col, row));
+        board.remove(col, row);
+        assertTrue(board.isEmpty(col, row));
+        assertEquals(copy.getCount(), board.getCount());
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            for (int k = 0; k < BitBoard.lineCount(d); k++) {
+                assertEquals(copy.line(BitBoard.BLACK, d, k), board.line(BitBoard.BLACK, d, k));
+                assertEquals(copy.line(BitBoard.WHITE, d, k), board.line(BitBoard.WHITE, d, k));
+            }
+        }
+    }
+}
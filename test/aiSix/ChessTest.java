@@ -0,0 +1,82 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RadialGradientPaint;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 贴预先画好的棋子图片和直接在棋盘上画渐变圆的结果一致
+ */
+class ChessTest {
+    private static final int WIDTH = ChessBoard.MARGIN * 2 + ChessBoard.SPAN * 4;
+
+    private static BufferedImage image() {
+        return new BufferedImage(WIDTH, WIDTH, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * 不用图片，直接在交叉点(col, row)画棋子
+     */
+    private static void fill(BufferedImage image, int col, int row, int color) {
+        int xPos = col * ChessBoard.SPAN + ChessBoard.MARGIN;
+        int yPos = row * ChessBoard.SPAN + ChessBoard.MARGIN;
+        int diameter = Chess.DIAMETER;
+        float[] f = {0f, 1f};
+        Color[] c = {Color.WHITE, Color.BLACK};
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new RadialGradientPaint(xPos + diameter / 4, yPos - diameter / 4,
+                color == BitBoard.BLACK ? diameter : diameter * 2, f, c));
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_DEFAULT);
+        g2d.fill(new Ellipse2D.Float(xPos - (float) diameter / 2, yPos - (float) diameter / 2, diameter, diameter));
+        g2d.dispose();
+    }
+
+    @Test
+    void spriteMatchesDirectDrawing() {
+        for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+            for (int col = 0; col < 3; col++) {
+                BufferedImage expected = image();
+                fill(expected, col, 2, color);
+                BufferedImage actual = image();
+                Graphics2D g = actual.createGraphics();
+                Chess.draw(g, col, 2, color);
+                g.dispose();
+                int painted = 0;
+                for (int y = 0; y < WIDTH; y++) {
+                    for (int x = 0; x < WIDTH; x++) {
+                        int e = expected.getRGB(x, y);
+                        assertEquals(e, actual.getRGB(x, y), "color=" + color + " col=" + col + " x=" + x + " y=" + y);
+                        if (e >>> 24 != 0) {
+                            painted++;
+                        }
+                    }
+                }
+                assertTrue(painted > Chess.DIAMETER * Chess.DIAMETER / 2);
+            }
+        }
+    }
+
+    @Test
+    void blackIsDarkerThanWhite() {
+        BufferedImage image = image();
+        Graphics2D g = image.createGraphics();
+        Chess.draw(g, 0, 0, BitBoard.BLACK);
+        Chess.draw(g, 2, 0, BitBoard.WHITE);
+        g.dispose();
+        int y = ChessBoard.MARGIN + Chess.DIAMETER / 4;
+        int black = image.getRGB(ChessBoard.MARGIN - Chess.DIAMETER / 4, y);
+        int white = image.getRGB(ChessBoard.MARGIN + ChessBoard.SPAN * 2 - Chess.DIAMETER / 4, y);
+        assertEquals(0xff, black >>> 24);
+        assertEquals(0xff, white >>> 24);
+        assertTrue((black & 0xff) < (white & 0xff));
+    }
+}
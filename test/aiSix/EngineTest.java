@@ -0,0 +1,130 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 不用界面，直接通过GameState和Engine下棋
+ */
+class EngineTest {
+    private static Engine engine(int maxDepth) {
+        Engine engine = new Engine(16);
+        engine.setTimeLimit(200);
+        engine.setMaxDepth(maxDepth);
+        return engine;
+    }
+
+    @Test
+    void completesSix() {
+        GameState state = new GameState();
+        //黑方第9行已有四子，白方散在远处，轮到黑方下两子
+        int[] moves = {4, 9, 0, 0, 18, 0, 5, 9, 6, 9, 0, 18, 18, 18, 7, 9, 2, 2, 16, 16, 16, 2};
+        for (int i = 0; i < moves.length; i += 2) {
+            state.makeMove(moves[i], moves[i + 1]);
+        }
+        assertEquals(BitBoard.WHITE, GameState.colorOf(state.getCount() - 1));
+        assertEquals(BitBoard.BLACK, state.colorToMove());
+
+        int[] position = engine(4).search(state);
+        assertEquals(4, position.length);
+        state.makeMove(position[0], position[1]);
+        state.makeMove(position[2], position[3]);
+        assertEquals(BitBoard.BLACK, state.getWinner());
+    }
+
+    @Test
+    void playsAWholeGame() {
+        GameState state = new GameState();
+        Engine black = engine(2);
+        Engine white = engine(2);
+        while (!state.isGameOver()) {
+            int[] position = (state.colorToMove() == BitBoard.BLACK ? black : white).search(state);
+            assertEquals(state.stonesToPlace() * 2, position.length);
+            for (int i = 0; i < position.length && !state.isGameOver(); i += 2) {
+                state.makeMove(position[i], position[i + 1]);
+            }
+        }
+        assertTrue(state.getWinner() != 0 || state.getCount() == BitBoard.CELLS);
+        assertArrayEquals(new int[0], black.search(state));
+    }
+
+    @Test
+    void stopPonderingDoesNotWait() {
+        Engine engine = engine(Evaluate.MAX_SEARCH_DEPTH);
+        engine.setTimeLimit(60000);
+        GameState state = new GameState();
+        state.makeMove(9, 9);
+        engine.ponder(state);
+        assertTrue(engine.isPondering());
+        engine.stopPondering();
+        assertFalse(engine.isPondering());
+        engine.awaitPondering();
+        //search也会先停止后台思考
+        engine.ponder(state);
+        state.makeMove(10, 10);
+        state.makeMove(10, 8);
+        engine.setMaxDepth(2);
+        assertEquals(4, engine.search(state).length);
+        assertFalse(engine.isPondering());
+    }
+
+    private static void assertLegal(GameState state, int[] position) {
+        assertEquals(state.stonesToPlace() * 2, position.length);
+        for (int i = 0; i < position.length; i += 2) {
+            assertTrue(state.isLegal(position[i], position[i + 1]));
+        }
+        if (position.length == 4) {
+            assertFalse(position[0] == position[2] && position[1] == position[3]);
+        }
+    }
+
+    @Test
+    void parallelSearchKeepsTheTimeLimit() {
+        GameState state = new GameState();
+        Engine black = engine(Evaluate.MAX_SEARCH_DEPTH);
+        Engine white = engine(Evaluate.MAX_SEARCH_DEPTH);
+        for (Engine engine : new Engine[]{black, white}) {
+            engine.setThreads(4);
+            engine.setTimeLimit(300);
+        }
+        for (int step = 0; step < 16 && !state.isGameOver(); step++) {
+            long start = System.nanoTime();
+            int[] position = (state.colorToMove() == BitBoard.BLACK ? black : white).search(state);
+            long millis = (System.nanoTime() - start) / 1000000;
+            //辅助线程在主线程搜完后才停，留出退出和调度的余量
+            assertTrue(millis < 300 + 250, "step " + step + " took " + millis + "ms");
+            assertLegal(state, position);
+            for (int i = 0; i < position.length && !state.isGameOver(); i += 2) {
+                state.makeMove(position[i], position[i + 1]);
+            }
+        }
+    }
+
+    @Test
+    void parallelSearchStopsOnRequest() throws InterruptedException {
+        GameState state = new GameState();
+        for (int[] xy : new int[][]{{9, 9}, {10, 10}, {10, 8}}) {
+            state.makeMove(xy[0], xy[1]);
+        }
+        Engine engine = engine(Evaluate.MAX_SEARCH_DEPTH);
+        engine.setThreads(4);
+        engine.setTimeLimit(60000);
+        int[][] result = new int[1][];
+        Thread t = new Thread(() -> result[0] = engine.search(state));
+        t.start();
+        Thread.sleep(200);
+        long start = System.nanoTime();
+        //search开始前调用stop没有作用，一直通知到它返回
+        while (t.isAlive()) {
+            engine.stop();
+            t.join(10);
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue(millis < 1000, "stop took " + millis + "ms");
+        assertLegal(state, result[0]);
+    }
+}
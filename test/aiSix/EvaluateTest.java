@@ -0,0 +1,99 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 搜索中落子提子时增量更新的结果和对同一个局面重新计算的结果一致
+ */
+class EvaluateTest {
+    /**
+     * 从空棋盘随机下count子，不会下出连六
+     */
+    static GameState randomState(Random random, int count) {
+        GameState state = new GameState();
+        while (state.getCount() < count) {
+            int cell = BookBuilder.randomCell(state, random);
+            state.makeMove(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+            if (state.isGameOver()) {
+                state.unmakeMove();
+                break;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 局面对黑方的估值，和计算机执哪一方无关
+     *
+     * @param computerColor 构造e时该下的一方
+     */
+    private static int blackScore(Evaluate e, int computerColor) {
+        return computerColor == BitBoard.BLACK ? e.evaluateGame() : -e.evaluateGame();
+    }
+
+    private static void assertSameAsRebuilt(Evaluate e, int computerColor, GameState state) {
+        GameState copy = state.copy();
+        Evaluate rebuilt = new Evaluate(copy, new TranspositionTable(4));
+        assertEquals(blackScore(rebuilt, copy.colorToMove()), blackScore(e, computerColor));
+        assertArrayEquals(rebuilt.blackValue, e.blackValue);
+        assertArrayEquals(rebuilt.whiteValue, e.whiteValue);
+        assertArrayEquals(rebuilt.hashes, e.hashes);
+        long[] expected = new long[Evaluate.MY_REAL_VALUABLE_POSITION_NUM];
+        long[] actual = new long[Evaluate.MY_REAL_VALUABLE_POSITION_NUM];
+        int count = rebuilt.getTheMostValuablePositions(expected);
+        assertEquals(count, e.getTheMostValuablePositions(actual));
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void placeAndUnplaceMatchRebuild() {
+        Random random = new Random(11);
+        for (int t = 0; t < 10; t++) {
+            GameState state = randomState(random, 10 + random.nextInt(30));
+            Evaluate e = new Evaluate(state, new TranspositionTable(4));
+            int computerColor = state.colorToMove();
+            int base = state.getCount();
+            for (int step = 0; step < 300; step++) {
+                if (state.getCount() > base && (random.nextInt(3) == 0 || state.getCount() > base + 40)) {
+                    int last = state.getCount() - 1;
+                    e.unplace(state.getCol(last), state.getRow(last));
+                    state.unmakeMove();
+                } else {
+                    int cell = BookBuilder.randomCell(state, random);
+                    e.place(BitBoard.colOf(cell), BitBoard.rowOf(cell), state.colorToMove());
+                    state.makeMove(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+                    if (state.isGameOver()) {
+                        e.unplace(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+                        state.unmakeMove();
+                    }
+                }
+                if (step % 10 == 0) {
+                    assertSameAsRebuilt(e, computerColor, state);
+                }
+            }
+        }
+    }
+
+    @Test
+    void evaluationIsPatternCountsDotWeights() {
+        Random random = new Random(12);
+        int[] black = new int[PatternTable.PATTERNS];
+        int[] white = new int[PatternTable.PATTERNS];
+        for (int t = 0; t < 200; t++) {
+            GameState state = randomState(random, 5 + random.nextInt(60));
+            Evaluate e = new Evaluate(state, new TranspositionTable(4));
+            Evaluate.countPatterns(state.getBoard(), BitBoard.BLACK, black);
+            Evaluate.countPatterns(state.getBoard(), BitBoard.WHITE, white);
+            int expected = 0;
+            for (int p = 0; p < PatternTable.PATTERNS; p++) {
+                expected += Weights.DEFAULT.get(p) * (black[p] - white[p]);
+            }
+            assertEquals(expected, blackScore(e, state.colorToMove()));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * GameRecordWriter写的棋谱GameArchive能原样读回，文本格式能原样解析回来
+ */
+class GameRecordTest {
+    private static GameArchive readBack(ByteArrayOutputStream out) throws IOException {
+        return GameArchive.load(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertSameGame(GameRecord expected, GameRecord actual) {
+        assertEquals(expected.toText(), actual.toText());
+        assertEquals(expected.getResult(), actual.getResult());
+    }
+
+    @Test
+    void wholeGamesRoundTrip() throws IOException {
+        Random random = new Random(23);
+        GameRecord[] records = new GameRecord[3000];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        //总长超过GameArchive一次读的1MB，块之间会切开代码
+        try (GameRecordWriter writer = new GameRecordWriter(out)) {
+            for (int g = 0; g < records.length; g++) {
+                records[g] = GameRecord.of(EvaluateTest.randomState(random, 1 + random.nextInt(300)));
+                writer.write(records[g]);
+            }
+        }
+        GameArchive archive = readBack(out);
+        assertEquals(records.length, archive.size());
+        for (int g = 0; g < records.length; g++) {
+            assertEquals(records[g].getCount(), archive.getCount(g));
+            assertSameGame(records[g], archive.get(g));
+        }
+        GameState state = archive.replay(7);
+        assertEquals(records[7].getCount(), state.getCount());
+        assertEquals(records[7].getResult(), GameRecord.resultOf(state));
+    }
+
+    @Test
+    void streamedGamesWithUndoAndMissingEnd() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GameRecordWriter writer = new GameRecordWriter(out)) {
+            //悔了两子，黑胜
+            writer.startGame();
+            writer.stone(9, 9);
+            writer.stone(10, 10);
+            writer.stone(10, 8);
+            writer.undo();
+            writer.undo();
+            writer.stone(8, 8);
+            writer.endGame(GameRecord.BLACK_WIN);
+            //开始了一子没下就重新开始，不算一局
+            writer.startGame();
+            //没有END就开始下一局
+            writer.startGame();
+            writer.stone(3, 3);
+            writer.startGame();
+            writer.stone(4, 4);
+            writer.endGame(GameRecord.DRAW);
+            //文件结尾还没下完
+            writer.startGame();
+            writer.stone(5, 5);
+            writer.stone(6, 6);
+        }
+        GameArchive archive = readBack(out);
+        assertEquals(4, archive.size());
+        assertSameGame(GameRecord.parse("K10 J11 B+"), archive.get(0));
+        assertSameGame(GameRecord.parse("D16 *"), archive.get(1));
+        assertSameGame(GameRecord.parse("E15 ="), archive.get(2));
+        assertSameGame(GameRecord.parse("F14 G13 *"), archive.get(3));
+    }
+
+    @Test
+    void appendWritesHeaderOnce(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("games").resolve("games.rec");
+        GameRecord first = GameRecord.parse("K10 L11L9 J9K9 W+");
+        GameRecord second = GameRecord.parse("A1 T19 *");
+        try (GameRecordWriter writer = GameRecordWriter.append(file)) {
+            writer.write(first);
+        }
+        try (GameRecordWriter writer = GameRecordWriter.append(file)) {
+            writer.write(second);
+        }
+        GameArchive archive = GameArchive.load(file);
+        assertEquals(2, archive.size());
+        assertSameGame(first, archive.get(0));
+        assertSameGame(second, archive.get(1));
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        assertThrows(IOException.class, () -> GameArchive.load(new ByteArrayInputStream(new byte[3])));
+        assertThrows(IOException.class, () -> GameArchive.load(new ByteArrayInputStream(new byte[12])));
+    }
+
+    @Test
+    void textRoundTrip() {
+        Random random = new Random(24);
+        for (int t = 0; t < 200; t++) {
+            GameRecord record = GameRecord.of(EvaluateTest.randomState(random, random.nextInt(200)));
+            GameRecord parsed = GameRecord.parse(record.toText());
+            assertEquals(record.getResult(), parsed.getResult());
+            assertEquals(record.getCount(), parsed.getCount());
+            for (int i = 0; i < record.getCount(); i++) {
+                assertEquals(record.getCell(i), parsed.getCell(i));
+            }
+        }
+    }
+
+    @Test
+    void parsesTheDocumentedExample() {
+        GameRecord record = GameRecord.parse("K10 L11L9 J9K9 W+");
+        assertEquals(GameRecord.WHITE_WIN, record.getResult());
+        int[] expected = {9, 9, 10, 8, 10, 10, 8, 10, 9, 10};
+        int[] actual = new int[record.getCount() * 2];
+        for (int i = 0; i < record.getCount(); i++) {
+            actual[i * 2] = record.getCol(i);
+            actual[i * 2 + 1] = record.getRow(i);
+        }
+        assertArrayEquals(expected, actual);
+        assertEquals("*", GameRecord.parse("").toText());
+        assertThrows(IllegalArgumentException.class, () -> GameRecord.parse("K20 *"));
+        assertThrows(IllegalArgumentException.class, () -> GameRecord.parse("K10 I5 B+"));
+    }
+}
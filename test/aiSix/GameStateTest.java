@@ -0,0 +1,70 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameStateTest {
+    @Test
+    void blackPlacesOneStoneThenTwoEach() {
+        int[] expected = {BitBoard.BLACK, BitBoard.WHITE, BitBoard.WHITE, BitBoard.BLACK, BitBoard.BLACK,
+                BitBoard.WHITE, BitBoard.WHITE};
+        GameState state = new GameState();
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], GameState.colorOf(i));
+            assertEquals(expected[i], state.colorToMove());
+            assertEquals(i % 2 == 1 ? 2 : 1, state.stonesToPlace());
+            state.makeMove(i, 0);
+            assertEquals(expected[i], state.get(i, 0));
+        }
+    }
+
+    @Test
+    void sixWinsAndUnmakeTakesItBack() {
+        GameState state = new GameState();
+        //黑方在第9行连下六子，白方隔一格下在第0行
+        state.makeMove(3, 9);
+        int white = 0;
+        for (int col = 4; col <= 8; col += 2) {
+            state.makeMove(white, 0);
+            state.makeMove(white + 2, 0);
+            white += 4;
+            state.makeMove(col, 9);
+            if (col < 8) {
+                state.makeMove(col + 1, 9);
+            }
+        }
+        assertEquals(BitBoard.BLACK, state.getWinner());
+        assertTrue(state.isGameOver());
+        assertFalse(state.isLegal(10, 10));
+        assertEquals(0, state.legalMoves(new int[BitBoard.CELLS]));
+
+        state.unmakeMove();
+        assertEquals(0, state.getWinner());
+        assertTrue(state.isLegal(8, 9));
+        assertEquals(BitBoard.CELLS - state.getCount(), state.legalMoves(new int[BitBoard.CELLS]));
+    }
+
+    @Test
+    void rejectsOccupiedAndOutsideCells() {
+        GameState state = new GameState();
+        state.makeMove(9, 9);
+        assertThrows(IllegalArgumentException.class, () -> state.makeMove(9, 9));
+        assertThrows(IllegalArgumentException.class, () -> state.makeMove(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> state.makeMove(0, BitBoard.SIZE));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        GameState state = new GameState();
+        state.makeMove(9, 9);
+        GameState copy = state.copy();
+        copy.makeMove(10, 10);
+        assertEquals(1, state.getCount());
+        assertEquals(BitBoard.EMPTY, state.get(10, 10));
+        assertEquals(BitBoard.WHITE, copy.get(10, 10));
+    }
+}
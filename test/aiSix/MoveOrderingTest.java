@@ -0,0 +1,89 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 置换表着法、杀手着法和历史分决定的搜索顺序
+ */
+class MoveOrderingTest {
+    private static int move(int first, int second) {
+        return Evaluate.move(first, second);
+    }
+
+    private static Evaluate evaluate() {
+        GameState state = new GameState();
+        state.makeMove(9, 9);
+        return new Evaluate(state, new TranspositionTable(4));
+    }
+
+    /**
+     * 按generateMoves的输出准备好着法和价值，排序后返回着法
+     */
+    private static int[] order(Evaluate e, int[] values, int tableMove, int depth) {
+        int[] moves = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            moves[i] = move(i * 2, i * 2 + 1);
+            e.moveValues[i] = values[i];
+        }
+        e.orderMoves(moves, moves.length, tableMove, depth);
+        return moves;
+    }
+
+    @Test
+    void tableMoveThenKillersThenValue() {
+        Evaluate e = evaluate();
+        e.updateKillersAndHistory(move(6, 7), 3);
+        e.updateKillersAndHistory(move(2, 3), 3);
+        int[] moves = order(e, new int[]{5000, 4000, 3000, 2000, 1000}, move(8, 9), 3);
+        assertArrayEquals(new int[]{move(8, 9), move(2, 3), move(6, 7), move(0, 1), move(4, 5)}, moves);
+
+        //别的深度的杀手着法不影响这一层，只有历史分
+        moves = order(e, new int[]{5000, 4000, 3000, 2000, 1000}, TranspositionTable.NO_MOVE, 4);
+        assertArrayEquals(new int[]{move(0, 1), move(2, 3), move(4, 5), move(6, 7), move(8, 9)}, moves);
+    }
+
+    @Test
+    void killerSlotsKeepTheTwoLatestMoves() {
+        Evaluate e = evaluate();
+        e.updateKillersAndHistory(move(0, 1), 2);
+        e.updateKillersAndHistory(move(2, 3), 2);
+        e.updateKillersAndHistory(move(2, 3), 2);
+        e.updateKillersAndHistory(move(4, 5), 2);
+        int[] moves = order(e, new int[]{50, 40, 30}, TranspositionTable.NO_MOVE, 2);
+        //move(0, 1)已经被挤掉，同一个着法不会占两个位置
+        assertArrayEquals(new int[]{move(4, 5), move(2, 3), move(0, 1)}, moves);
+    }
+
+    @Test
+    void historyReordersCloseValues() {
+        Evaluate e = evaluate();
+        //深度5的截断给第4格和第5格各加25分
+        e.updateKillersAndHistory(move(4, 5), 5);
+        assertEquals(25, e.history[4]);
+        assertEquals(25, e.history[5]);
+        int[] moves = order(e, new int[]{130, 120, 100, 90}, TranspositionTable.NO_MOVE, 1);
+        assertArrayEquals(new int[]{move(4, 5), move(0, 1), move(2, 3), move(6, 7)}, moves);
+        //价值相差太大时历史分不改变顺序
+        moves = order(e, new int[]{1300, 1200, 1000, 900}, TranspositionTable.NO_MOVE, 1);
+        assertArrayEquals(new int[]{move(0, 1), move(2, 3), move(4, 5), move(6, 7)}, moves);
+    }
+
+    @Test
+    void historyIsHalvedAboveTheLimit() {
+        Evaluate e = evaluate();
+        e.updateKillersAndHistory(move(100, Evaluate.NO_CELL), 3);
+        for (int i = 0; i < 200; i++) {
+            e.updateKillersAndHistory(move(7, 8), 10);
+            for (int h : e.history) {
+                assertTrue(h <= Evaluate.HISTORY_LIMIT);
+            }
+        }
+        assertTrue(e.history[7] > Evaluate.HISTORY_LIMIT / 2);
+        //其他格子的历史分也一起减半
+        assertEquals(0, e.history[100]);
+    }
+}
@@ -0,0 +1,79 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpeningBookTest {
+    /**
+     * 只有一条记录的开局库：state这个局面下position
+     */
+    private static OpeningBook bookOf(GameState state, int[] position) throws IOException {
+        long[] hashes = OpeningBook.hashes(state);
+        int symmetry = Symmetry.canonical(hashes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OpeningBook.write(out, new long[]{hashes[symmetry]}, new int[]{OpeningBook.encode(position, symmetry)},
+                1, state.getCount());
+        return OpeningBook.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    void oneEntryServesAllSymmetricPositions() throws IOException {
+        GameState state = new GameState();
+        state.makeMove(9, 9);
+        state.makeMove(10, 8);
+        state.makeMove(11, 8);
+        int[] position = {8, 10, 12, 7};
+        OpeningBook book = bookOf(state, position);
+        assertEquals(1, book.size());
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            int[] expected = SymmetryTest.transformPosition(position, s);
+            int[] actual = book.lookup(SymmetryTest.transform(state, s));
+            assertNotNull(actual, "symmetry " + s);
+            //两子的顺序可以不同
+            if (actual[0] != expected[0] || actual[1] != expected[1]) {
+                actual = new int[]{actual[2], actual[3], actual[0], actual[1]};
+            }
+            assertArrayEquals(expected, actual, "symmetry " + s);
+        }
+    }
+
+    @Test
+    void missingOrIllegalPositionsReturnNull() throws IOException {
+        GameState state = new GameState();
+        state.makeMove(9, 9);
+        state.makeMove(10, 8);
+        state.makeMove(11, 8);
+        //记录的着法下在已有棋子上，当作哈希冲突
+        OpeningBook book = bookOf(state, new int[]{9, 9, 12, 7});
+        assertNull(book.lookup(state));
+        GameState other = new GameState();
+        other.makeMove(3, 3);
+        assertNull(book.lookup(other));
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        assertThrows(IOException.class, () -> OpeningBook.read(new ByteArrayInputStream(new byte[16])));
+    }
+
+    @Test
+    void bundledBookHasTheFirstMove() {
+        OpeningBook book = OpeningBook.loadDefault();
+        assertNotNull(book);
+        GameState state = new GameState();
+        int[] position = book.lookup(state);
+        assertNotNull(position);
+        assertEquals(2, position.length);
+        assertTrue(state.isLegal(position[0], position[1]));
+    }
+}
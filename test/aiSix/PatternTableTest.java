@@ -0,0 +1,151 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 查表得到的棋型和逐格扫描棋盘得到的棋型一致
+ */
+class PatternTableTest {
+    private static final int[] DX = {1, 0, 1, 1};
+    private static final int[] DY = {0, 1, 1, -1};
+
+    /**
+     * 从(col, row)沿方向d逐格读出前后RANGE格，组成classifyPoint用的窗口
+     */
+    private static int scanPoint(BitBoard board, int col, int row, int d, int color) {
+        int mine = 0;
+        int empty = 0;
+        int window = PatternTable.RANGE * 2 + 1;
+        for (int k = 0; k < window; k++) {
+            int offset = k - PatternTable.RANGE;
+            int x = col + offset * DX[d];
+            int y = row + offset * DY[d];
+            if (offset == 0) {
+                mine |= 1 << k;
+            } else if (x >= 0 && x < BitBoard.SIZE && y >= 0 && y < BitBoard.SIZE) {
+                if (board.get(x, y) == color) {
+                    mine |= 1 << k;
+                } else if (board.get(x, y) == BitBoard.EMPTY) {
+                    empty |= 1 << k;
+                }
+            }
+        }
+        return PatternTable.classifyPoint(mine, empty);
+    }
+
+    @Test
+    void pointPatternMatchesScan() {
+        Random random = new Random(7);
+        for (int t = 0; t < 300; t++) {
+            BitBoard board = BitBoardTest.randomBoard(random, random.nextInt(150));
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                if (!board.isEmpty(cell)) {
+                    continue;
+                }
+                int col = BitBoard.colOf(cell);
+                int row = BitBoard.rowOf(cell);
+                for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+                    int index = BitBoard.LINE_INDEX[d][cell];
+                    int pos = BitBoard.LINE_POS[d][cell];
+                    for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+                        int mine = board.line(color, d, index);
+                        int empty = BitBoard.lineMask(d, index) & ~mine & ~board.line(3 - color, d, index);
+                        assertEquals(scanPoint(board, col, row, d, color), PatternTable.pointPattern(mine, empty, pos),
+                                "col=" + col + " row=" + row + " d=" + d + " color=" + color);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 一段连子的棋型：连子加两端空位不少于6格时，正好六子是连六，两端都有空位的二到五子是活棋型
+     */
+    private static int runPattern(int chess, int space1, int space2) {
+        if (chess < 2 || chess + space1 + space2 < 6) {
+            return PatternTable.NONE;
+        }
+        if (chess == 6) {
+            return PatternTable.SIX;
+        }
+        if (chess > 6 || space1 == 0 || space2 == 0) {
+            return PatternTable.NONE;
+        }
+        switch (chess) {
+            case 2:
+                return PatternTable.HUO_TWO;
+            case 3:
+                return PatternTable.HUO_THREE;
+            case 4:
+                return PatternTable.HUO_FOUR;
+            default:
+                return PatternTable.HUO_FIVE;
+        }
+    }
+
+    /**
+     * 沿每条线逐格找连子，数两端能延伸的格数：空位和己方棋子都能延伸，遇到对方棋子或者线的尽头为止
+     */
+    private static void scanLines(BitBoard board, int color, int[] counts) {
+        for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+            for (int k = 0; k < BitBoard.lineCount(d); k++) {
+                int mask = BitBoard.lineMask(d, k);
+                if (Integer.bitCount(mask) < 6) {
+                    continue;
+                }
+                int[] states = new int[BitBoard.SIZE];
+                int n = 0;
+                for (int pos = 0; pos < BitBoard.SIZE; pos++) {
+                    if (((mask >>> pos) & 1) != 0) {
+                        int cell = BitBoard.lineCell(d, k, pos);
+                        states[n++] = board.get(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+                    }
+                }
+                for (int i = 0; i < n; ) {
+                    if (states[i] != color) {
+                        i++;
+                        continue;
+                    }
+                    int end = i;
+                    while (end < n && states[end] == color) {
+                        end++;
+                    }
+                    int space1 = 0;
+                    for (int p = i - 1; p >= 0 && states[p] != 3 - color; p--) {
+                        space1++;
+                    }
+                    int space2 = 0;
+                    for (int p = end; p < n && states[p] != 3 - color; p++) {
+                        space2++;
+                    }
+                    counts[runPattern(end - i, space1, space2)]++;
+                    i = end;
+                }
+            }
+        }
+        counts[PatternTable.NONE] = 0;
+    }
+
+    @Test
+    void lineCountsMatchScan() {
+        Random random = new Random(8);
+        int[] expected = new int[PatternTable.PATTERNS];
+        int[] actual = new int[PatternTable.PATTERNS];
+        for (int t = 0; t < 300; t++) {
+            BitBoard board = BitBoardTest.randomBoard(random, random.nextInt(200));
+            for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+                Arrays.fill(expected, 0);
+                scanLines(board, color, expected);
+                Evaluate.countPatterns(board, color, actual);
+                actual[PatternTable.NONE] = 0;
+                assertArrayEquals(expected, actual, "board " + t + " color " + color);
+            }
+        }
+    }
+}
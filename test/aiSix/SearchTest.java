@@ -0,0 +1,167 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 主要变例搜索加渴望窗口和不剪枝的完整搜索结果一致
+ */
+class SearchTest {
+    /**
+     * 什么也不存的置换表，搜索结果只由着法生成和估值决定
+     */
+    private static class NoTable extends TranspositionTable {
+        NoTable() {
+            super(1);
+        }
+
+        @Override
+        public long probe(long key) {
+            return 0;
+        }
+
+        @Override
+        public void store(long key, int depth, int score, int bound, int move) {
+        }
+    }
+
+    /**
+     * 负极大值的完整搜索，着法和估值都用Evaluate的
+     *
+     * @return 对color的价值
+     */
+    private static int negamax(Evaluate e, int depth, int color, int computerColor) {
+        if (depth == 0) {
+            return color == computerColor ? e.evaluateGame() : -e.evaluateGame();
+        }
+        int[] moves = new int[Evaluate.MY_REAL_VALUABLE_PAIR_NUM];
+        int count = e.generateMoves(color, 2, moves);
+        if (e.winFound) {
+            return Evaluate.WIN;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        int best = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            e.placeMove(moves[i], color);
+            best = Math.max(best, -negamax(e, depth - 1, 3 - color, computerColor));
+            e.unplaceMove(moves[i]);
+        }
+        return best;
+    }
+
+    @Test
+    void pvsWithAspirationMatchesFullSearch() {
+        Random random = new Random(18);
+        int checked = 0;
+        while (checked < 12) {
+            GameState state = EvaluateTest.randomState(random, 9 + random.nextInt(30));
+            int color = state.colorToMove();
+            if (new ThreatSearch(state.getBoard(), color).findWin() != null) {
+                continue;
+            }
+            int depth = 2 + checked % 2;
+            Evaluate search = new Evaluate(state.copy(), new NoTable());
+            search.setTimeLimit(Long.MAX_VALUE / 2);
+            search.setMaxDepth(depth);
+            int[] position = search.getTheBestPosition();
+            if (search.completedDepth > depth) {
+                //一步就能连六或者只有一种下法，没有搜索
+                continue;
+            }
+
+            //对根节点的每个着法做完整搜索
+            Evaluate full = new Evaluate(state.copy(), new NoTable());
+            int[] rootMoves = new int[Evaluate.MY_REAL_VALUABLE_PAIR_NUM];
+            int count = full.generateMoves(color, state.stonesToPlace(), rootMoves);
+            int best = Integer.MIN_VALUE;
+            int chosen = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                full.placeMove(rootMoves[i], color);
+                int value = -negamax(full, search.completedDepth - 1, 3 - color, color);
+                full.unplaceMove(rootMoves[i]);
+                best = Math.max(best, value);
+                int[] p = Evaluate.toPosition(rootMoves[i]);
+                if (samePosition(p, position)) {
+                    chosen = value;
+                }
+            }
+            assertEquals(best, search.score, "score at depth " + search.completedDepth);
+            //同分的着法可能有几个，选中的着法要是其中之一
+            assertEquals(best, chosen, "move at depth " + search.completedDepth);
+            checked++;
+        }
+    }
+
+    private static boolean samePosition(int[] a, int[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        if (a.length == 2) {
+            return a[0] == b[0] && a[1] == b[1];
+        }
+        return (a[0] == b[0] && a[1] == b[1] && a[2] == b[2] && a[3] == b[3])
+                || (a[0] == b[2] && a[1] == b[3] && a[2] == b[0] && a[3] == b[1]);
+    }
+
+    @Test
+    void fullBoardIsStoredAsAnExactDraw() {
+        //按((col / 2) + row) % 2分黑白，任何方向上同色最多连两子；空出四个不在同一条线上的格子
+        int[][] empty = {{1, 1}, {7, 4}, {4, 10}, {10, 15}};
+        Deque<int[]> black = new ArrayDeque<>();
+        Deque<int[]> white = new ArrayDeque<>();
+        for (int col = 0; col < BitBoard.SIZE; col++) {
+            for (int row = 0; row < BitBoard.SIZE; row++) {
+                boolean isEmpty = false;
+                for (int[] xy : empty) {
+                    isEmpty |= xy[0] == col && xy[1] == row;
+                }
+                if (!isEmpty) {
+                    ((col / 2 + row) % 2 == 0 ? black : white).add(new int[]{col, row});
+                }
+            }
+        }
+        GameState state = new GameState();
+        while (!black.isEmpty() || !white.isEmpty()) {
+            int[] xy = (state.colorToMove() == BitBoard.BLACK ? black : white).remove();
+            state.makeMove(xy[0], xy[1]);
+        }
+        assertEquals(0, state.getWinner());
+        assertEquals(BitBoard.WHITE, state.colorToMove());
+
+        //白方下两子，黑方下最后两子，再下一层时已经没有着法
+        TranspositionTable table = new TranspositionTable(12);
+        Evaluate search = new Evaluate(state.copy(), table);
+        search.setTimeLimit(Long.MAX_VALUE / 2);
+        search.setMaxDepth(3);
+        search.getTheBestPosition();
+        assertEquals(3, search.completedDepth);
+        assertEquals(0, search.score);
+
+        long[] hashes = new long[Symmetry.COUNT];
+        for (int i = 0; i < empty.length; i++) {
+            for (int j = i + 1; j < empty.length; j++) {
+                GameState full = state.copy();
+                full.makeMove(empty[i][0], empty[i][1]);
+                full.makeMove(empty[j][0], empty[j][1]);
+                for (int k = 0; k < empty.length; k++) {
+                    if (k != i && k != j) {
+                        full.makeMove(empty[k][0], empty[k][1]);
+                    }
+                }
+                Symmetry.hashes(full.getBoard(), hashes);
+                long entry = table.probe(hashes[Symmetry.canonical(hashes)]);
+                assertTrue(entry != 0);
+                assertEquals(TranspositionTable.EXACT, TranspositionTable.bound(entry));
+                assertEquals(0, TranspositionTable.score(entry));
+            }
+        }
+    }
+}
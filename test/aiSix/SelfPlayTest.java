@@ -0,0 +1,68 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 得分率换算成Elo差，引擎配置的解析
+ */
+class SelfPlayTest {
+    @Test
+    void eloOfScore() {
+        assertEquals(0, SelfPlay.elo(0.5), 1e-9);
+        //得分率75%大约是191分
+        assertEquals(400 * Math.log10(3), SelfPlay.elo(0.75), 1e-9);
+        assertEquals(-SelfPlay.elo(0.75), SelfPlay.elo(0.25), 1e-9);
+        assertEquals(Double.NEGATIVE_INFINITY, SelfPlay.elo(0), 0);
+        assertEquals(Double.POSITIVE_INFINITY, SelfPlay.elo(1), 0);
+        assertEquals(Double.NEGATIVE_INFINITY, SelfPlay.elo(-0.1), 0);
+    }
+
+    @Test
+    void parsesConfig() throws IOException {
+        SelfPlay.Config c = SelfPlay.Config.parse("time=500, depth=3,table=16,book=true,");
+        assertEquals(500, c.timeLimit);
+        assertEquals(3, c.maxDepth);
+        assertEquals(16, c.tableBits);
+        assertTrue(c.book);
+        assertNull(c.weightsFile);
+        assertEquals(Weights.DEFAULT, c.weights);
+        assertEquals("time=500,depth=3,table=16,book=true", c.toString());
+    }
+
+    @Test
+    void emptyConfigKeepsDefaults() throws IOException {
+        SelfPlay.Config c = SelfPlay.Config.parse("");
+        SelfPlay.Config defaults = new SelfPlay.Config();
+        assertEquals(defaults.toString(), c.toString());
+        assertFalse(c.book);
+    }
+
+    @Test
+    void readsWeightsFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("tuned.weights");
+        Files.write(file, Collections.singletonList("HUO_THREE=123"));
+        SelfPlay.Config c = SelfPlay.Config.parse("weights=" + file);
+        assertEquals(123, c.weights.get(PatternTable.HUO_THREE));
+        assertEquals(file.toString(), c.weightsFile);
+        assertTrue(c.toString().endsWith(",weights=" + file));
+    }
+
+    @Test
+    void rejectsBadConfig(@TempDir Path dir) {
+        assertThrows(IllegalArgumentException.class, () -> SelfPlay.Config.parse("speed=1"));
+        assertThrows(NumberFormatException.class, () -> SelfPlay.Config.parse("time=fast"));
+        assertThrows(IOException.class, () -> SelfPlay.Config.parse("weights=" + dir.resolve("missing.weights")));
+    }
+}
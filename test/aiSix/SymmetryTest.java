@@ -0,0 +1,109 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SymmetryTest {
+    /**
+     * 把对局的每一子按symmetry变换后重新下一遍
+     */
+    static GameState transform(GameState state, int symmetry) {
+        GameState result = new GameState();
+        for (int i = 0; i < state.getCount(); i++) {
+            int cell = Symmetry.transform(BitBoard.cell(state.getCol(i), state.getRow(i)), symmetry);
+            result.makeMove(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+        }
+        return result;
+    }
+
+    /**
+     * 从头计算一个局面的哈希值
+     */
+    static long hash(BitBoard board) {
+        long hash = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            int color = board.get(BitBoard.colOf(cell), BitBoard.rowOf(cell));
+            if (color != BitBoard.EMPTY) {
+                hash ^= Zobrist.key(color, cell);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 变换一串坐标，先x后y
+     */
+    static int[] transformPosition(int[] position, int symmetry) {
+        int[] result = new int[position.length];
+        for (int i = 0; i + 1 < position.length; i += 2) {
+            int cell = Symmetry.transform(BitBoard.cell(position[i], position[i + 1]), symmetry);
+            result[i] = BitBoard.colOf(cell);
+            result[i + 1] = BitBoard.rowOf(cell);
+        }
+        return result;
+    }
+
+    @Test
+    void inverseUndoesTransform() {
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            boolean[] seen = new boolean[BitBoard.CELLS];
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                int t = Symmetry.transform(cell, s);
+                seen[t] = true;
+                assertEquals(cell, Symmetry.transform(t, Symmetry.inverse(s)));
+            }
+            for (boolean b : seen) {
+                assertEquals(true, b, "symmetry " + s + " is not a permutation");
+            }
+        }
+    }
+
+    @Test
+    void hashesAreHashesOfTransformedBoards() {
+        Random random = new Random(20);
+        long[] hashes = new long[Symmetry.COUNT];
+        for (int t = 0; t < 50; t++) {
+            GameState state = EvaluateTest.randomState(random, 1 + random.nextInt(40));
+            Symmetry.hashes(state.getBoard(), hashes);
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                assertEquals(hash(transform(state, s).getBoard()), hashes[s]);
+            }
+        }
+    }
+
+    @Test
+    void symmetricPositionsShareCanonicalHash() {
+        Random random = new Random(21);
+        long[] hashes = new long[Symmetry.COUNT];
+        for (int t = 0; t < 50; t++) {
+            GameState state = EvaluateTest.randomState(random, 1 + random.nextInt(40));
+            Symmetry.hashes(state.getBoard(), hashes);
+            long canonical = hashes[Symmetry.canonical(hashes)];
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                Symmetry.hashes(transform(state, s).getBoard(), hashes);
+                assertEquals(canonical, hashes[Symmetry.canonical(hashes)]);
+            }
+        }
+    }
+
+    @Test
+    void transformMoveKeepsPackingAndOrder() {
+        assertEquals(TranspositionTable.NO_MOVE, Symmetry.transformMove(TranspositionTable.NO_MOVE, 5));
+        int first = BitBoard.cell(2, 3);
+        int second = BitBoard.cell(15, 1);
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            int a = Symmetry.transform(first, s);
+            int b = Symmetry.transform(second, s);
+            int move = Symmetry.transformMove(Evaluate.move(first, second), s);
+            assertEquals(Math.min(a, b), Evaluate.firstCell(move));
+            assertEquals(Math.max(a, b), Evaluate.secondCell(move));
+            assertEquals(Evaluate.move(a, Evaluate.NO_CELL), Symmetry.transformMove(Evaluate.move(first, Evaluate.NO_CELL), s));
+            assertArrayEquals(new int[]{BitBoard.colOf(a), BitBoard.rowOf(a), BitBoard.colOf(b), BitBoard.rowOf(b)},
+                    transformPosition(new int[]{2, 3, 15, 1}, s));
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreatSearchTest {
+    private static final int[] DX = {1, 0, 1, 1};
+    private static final int[] DY = {0, 1, 1, -1};
+
+    /**
+     * 逐格检查每个连续6格的窗口
+     */
+    private static boolean scanThreat(BitBoard board, int color) {
+        for (int col = 0; col < BitBoard.SIZE; col++) {
+            for (int row = 0; row < BitBoard.SIZE; row++) {
+                for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+                    int mine = 0;
+                    boolean blocked = false;
+                    for (int k = 0; k < 6 && !blocked; k++) {
+                        int x = col + DX[d] * k;
+                        int y = row + DY[d] * k;
+                        if (x < 0 || x >= BitBoard.SIZE || y < 0 || y >= BitBoard.SIZE || board.get(x, y) == 3 - color) {
+                            blocked = true;
+                        } else if (board.get(x, y) == color) {
+                            mine++;
+                        }
+                    }
+                    if (!blocked && mine >= 4) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void hasThreatMatchesScan() {
+        Random random = new Random(25);
+        int threats = 0;
+        for (int t = 0; t < 2000; t++) {
+            BitBoard board = BitBoardTest.randomBoard(random, random.nextInt(120));
+            for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+                boolean expected = scanThreat(board, color);
+                assertEquals(expected, ThreatSearch.hasThreat(board, color), "board " + t + " color " + color);
+                threats += expected ? 1 : 0;
+            }
+        }
+        //随机棋盘里两种情况都要有
+        assertTrue(threats > 0 && threats < 4000);
+    }
+
+    @Test
+    void stopFlagAndDeadlineAbortTheSearch() {
+        Random random = new Random(9);
+        int checked = 0;
+        while (checked < 20) {
+            GameState state = EvaluateTest.randomState(random, 31);
+            BitBoard board = state.getBoard();
+            int color = state.colorToMove();
+            if (state.stonesToPlace() != 2) {
+                continue;
+            }
+            //先不停止地搜一遍，只用没有必胜、又至少查过一次停止标志的局面
+            AtomicInteger polls = new AtomicInteger();
+            ThreatSearch full = new ThreatSearch(board, color);
+            full.setStopFlag(() -> polls.incrementAndGet() < 0);
+            if (full.findWin() != null || polls.get() == 0) {
+                continue;
+            }
+            long hash = SymmetryTest.hash(board);
+
+            polls.set(0);
+            ThreatSearch stopped = new ThreatSearch(board, color);
+            stopped.setStopFlag(() -> polls.incrementAndGet() > 0);
+            assertNull(stopped.findWin());
+            assertEquals(1, polls.get());
+
+            ThreatSearch late = new ThreatSearch(board, color);
+            late.setDeadline(0);
+            assertNull(late.findWin());
+            assertEquals(hash, SymmetryTest.hash(board));
+            checked++;
+        }
+    }
+
+    private static BitBoard board(int[][] black, int[][] white) {
+        BitBoard board = new BitBoard();
+        for (int[] xy : black) {
+            board.put(xy[0], xy[1], BitBoard.BLACK);
+        }
+        for (int[] xy : white) {
+            board.put(xy[0], xy[1], BitBoard.WHITE);
+        }
+        return board;
+    }
+
+    //白方在第3行和第14行各有活三，黑方的子散在远处
+    private static final int[][] TWO_THREES = {{3, 3}, {4, 3}, {5, 3}, {3, 14}, {4, 14}, {5, 14}};
+    private static final int[][] SCATTERED = {{15, 0}, {17, 5}, {14, 9}, {16, 17}, {12, 12}, {18, 2}};
+
+    /**
+     * 一方所有威胁窗口里的空格，对方要挡住威胁只能下在这些格子里
+     */
+    private static List<Integer> blockingCells(BitBoard board, int color) {
+        List<Integer> cells = new ArrayList<>();
+        for (int col = 0; col < BitBoard.SIZE; col++) {
+            for (int row = 0; row < BitBoard.SIZE; row++) {
+                for (int d = 0; d < BitBoard.DIRECTIONS; d++) {
+                    int mine = 0;
+                    boolean blocked = false;
+                    for (int k = 0; k < 6 && !blocked; k++) {
+                        int x = col + DX[d] * k;
+                        int y = row + DY[d] * k;
+                        if (x < 0 || x >= BitBoard.SIZE || y < 0 || y >= BitBoard.SIZE || board.get(x, y) == 3 - color) {
+                            blocked = true;
+                        } else if (board.get(x, y) == color) {
+                            mine++;
+                        }
+                    }
+                    for (int k = 0; k < 6 && !blocked && mine >= 4; k++) {
+                        int cell = BitBoard.cell(col + DX[d] * k, row + DY[d] * k);
+                        if (board.isEmpty(cell) && !cells.contains(cell)) {
+                            cells.add(cell);
+                        }
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * findWin找到的着法真的能赢：下了之后要么已经连六，要么对方怎么挡（包括不挡）进攻方都还能找到必胜，
+     * 最多再走depth步就连六
+     */
+    private static void assertForcedWin(BitBoard board, int attacker, int depth) {
+        int[] win = new ThreatSearch(board, attacker).findWin();
+        assertNotNull(win);
+        boolean six = false;
+        for (int i = 0; i < win.length; i += 2) {
+            assertTrue(board.isEmpty(BitBoard.cell(win[i], win[i + 1])));
+            board.put(win[i], win[i + 1], attacker);
+        }
+        for (int i = 0; i < win.length; i += 2) {
+            six |= board.isSix(win[i], win[i + 1], attacker);
+        }
+        if (!six) {
+            assertTrue(depth > 0, "no six within the expected number of steps");
+            List<Integer> cells = blockingCells(board, attacker);
+            //再加一个远处的空格，代表不挡的下法
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                if (board.isEmpty(cell) && !cells.contains(cell)) {
+                    cells.add(cell);
+                    break;
+                }
+            }
+            for (int i = 0; i < cells.size(); i++) {
+                for (int j = i + 1; j < cells.size(); j++) {
+                    int x = cells.get(i);
+                    int y = cells.get(j);
+                    board.put(BitBoard.colOf(x), BitBoard.rowOf(x), 3 - attacker);
+                    board.put(BitBoard.colOf(y), BitBoard.rowOf(y), 3 - attacker);
+                    assertForcedWin(board, attacker, depth - 1);
+                    board.remove(BitBoard.colOf(y), BitBoard.rowOf(y));
+                    board.remove(BitBoard.colOf(x), BitBoard.rowOf(x));
+                }
+            }
+        }
+        for (int i = 0; i < win.length; i += 2) {
+            board.remove(win[i], win[i + 1]);
+        }
+    }
+
+    @Test
+    void completesAnOpenFour() {
+        BitBoard board = board(new int[][]{{3, 9}, {4, 9}, {5, 9}, {6, 9}}, SCATTERED);
+        int[] win = new ThreatSearch(board, BitBoard.BLACK).findWin();
+        assertNotNull(win);
+        assertEquals(4, win.length);
+        board.put(win[0], win[1], BitBoard.BLACK);
+        board.put(win[2], win[3], BitBoard.BLACK);
+        assertTrue(board.isSix(win[0], win[1], BitBoard.BLACK) || board.isSix(win[2], win[3], BitBoard.BLACK));
+    }
+
+    @Test
+    void findsAForcedWinThatReallyWins() {
+        BitBoard board = board(SCATTERED, TWO_THREES);
+        long hash = SymmetryTest.hash(board);
+        assertForcedWin(board, BitBoard.WHITE, 2);
+        assertEquals(hash, SymmetryTest.hash(board));
+    }
+
+    @Test
+    void defenderThreatComesFirst() {
+        //同样的两个活三，但黑方已经有活四，白方必须先挡
+        int[][] black = {{3, 9}, {4, 9}, {5, 9}, {6, 9}, {15, 0}, {17, 5}};
+        BitBoard board = board(black, TWO_THREES);
+        assertNull(new ThreatSearch(board, BitBoard.WHITE).findWin());
+    }
+
+    @Test
+    void quietPositionHasNoWin() {
+        BitBoard board = board(new int[][]{{9, 9}, {8, 8}, {11, 11}, {7, 12}, {12, 6}},
+                new int[][]{{10, 10}, {10, 8}, {8, 10}, {11, 7}});
+        assertNull(new ThreatSearch(board, BitBoard.BLACK).findWin());
+        assertNull(new ThreatSearch(board, BitBoard.WHITE).findWin());
+    }
+
+    @Test
+    void crowdedBoardWithManyThreatWindows() {
+        //黑方隔行下满每行的两格留一格，每行都有十几个威胁窗口，加起来远多于缓冲区的大小
+        BitBoard board = new BitBoard();
+        for (int row = 0; row < BitBoard.SIZE; row += 2) {
+            for (int col = 0; col < BitBoard.SIZE; col++) {
+                if (col % 3 != 2) {
+                    board.put(col, row, BitBoard.BLACK);
+                }
+            }
+        }
+        board.put(2, 1, BitBoard.WHITE);
+        board.put(5, 3, BitBoard.WHITE);
+        //黑方直接连六，白方先要挡黑方的威胁
+        int[] win = new ThreatSearch(board, BitBoard.BLACK).findWin();
+        assertNotNull(win);
+        board.put(win[0], win[1], BitBoard.BLACK);
+        board.put(win[2], win[3], BitBoard.BLACK);
+        assertTrue(board.isSix(win[0], win[1], BitBoard.BLACK) || board.isSix(win[2], win[3], BitBoard.BLACK));
+        board.remove(win[2], win[3]);
+        board.remove(win[0], win[1]);
+        assertNull(new ThreatSearch(board, BitBoard.WHITE).findWin());
+    }
+}
@@ -0,0 +1,85 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TranspositionTableTest {
+    private static final int BITS = 4;
+    //低BITS位相同，落在表的同一个位置
+    private static final long A = 0x123456789ABCDEF3L;
+    private static final long B = 0x0FEDCBA987654323L;
+
+    @Test
+    void storedEntryIsReadBack() {
+        TranspositionTable table = new TranspositionTable(BITS);
+        int move = Evaluate.move(BitBoard.cell(3, 4), BitBoard.cell(18, 18));
+        table.store(A, 7, -12345, TranspositionTable.UPPER, move);
+        long entry = table.probe(A);
+        assertEquals(-12345, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+        assertEquals(move, TranspositionTable.move(entry));
+        //同一位置的另一个局面查不到
+        assertEquals(0, table.probe(B));
+        assertEquals(0, table.probe(A + 1));
+
+        table.clear();
+        assertEquals(0, table.probe(A));
+    }
+
+    @Test
+    void deeperEntriesOfTheSameSearchAreKept() {
+        TranspositionTable table = new TranspositionTable(BITS);
+        table.newSearch();
+        table.store(A, 5, 1, TranspositionTable.EXACT, 10);
+        //同一次搜索里较浅的结果不能覆盖
+        table.store(B, 4, 2, TranspositionTable.EXACT, 20);
+        assertEquals(0, table.probe(B));
+        assertEquals(1, TranspositionTable.score(table.probe(A)));
+        //同样深或者更深的可以
+        table.store(B, 5, 3, TranspositionTable.LOWER, 30);
+        assertEquals(0, table.probe(A));
+        assertEquals(3, TranspositionTable.score(table.probe(B)));
+
+        //上一次搜索留下的结果再深也可以替换
+        table.store(A, 9, 4, TranspositionTable.EXACT, 40);
+        table.newSearch();
+        table.store(B, 1, 5, TranspositionTable.EXACT, 50);
+        assertEquals(0, table.probe(A));
+        assertEquals(5, TranspositionTable.score(table.probe(B)));
+    }
+
+    @Test
+    void sameKeyIsAlwaysUpdatedAndKeepsItsMove() {
+        TranspositionTable table = new TranspositionTable(BITS);
+        table.store(A, 6, 1, TranspositionTable.LOWER, 77);
+        table.store(A, 2, 8, TranspositionTable.UPPER, TranspositionTable.NO_MOVE);
+        long entry = table.probe(A);
+        assertEquals(2, TranspositionTable.depth(entry));
+        assertEquals(8, TranspositionTable.score(entry));
+        assertEquals(77, TranspositionTable.move(entry));
+        table.store(A, 2, 8, TranspositionTable.UPPER, 99);
+        assertEquals(99, TranspositionTable.move(table.probe(A)));
+    }
+
+    @Test
+    void tornWriteIsIgnored() {
+        TranspositionTable table = new TranspositionTable(BITS);
+        int index = (int) A & ((1 << BITS) - 1);
+        table.store(B, 3, 1, TranspositionTable.EXACT, 1);
+        long otherData = table.data[index];
+        table.store(A, 3, 2, TranspositionTable.EXACT, 2);
+        //另一个线程只写了数据，键还是A的：两个局面都查不到
+        table.data[index] = otherData;
+        assertEquals(0, table.probe(A));
+        assertEquals(0, table.probe(B));
+        //只写了键也一样
+        table.store(A, 3, 2, TranspositionTable.EXACT, 2);
+        long aData = table.data[index];
+        table.store(B, 3, 1, TranspositionTable.EXACT, 1);
+        table.data[index] = aData;
+        assertEquals(0, table.probe(A));
+        assertEquals(0, table.probe(B));
+    }
+}
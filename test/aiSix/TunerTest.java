@@ -0,0 +1,135 @@
+package aiSix;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 调参的误差和梯度：误差和逐个局面直接算的一致，梯度和数值微分一致，调参后误差下降
+ */
+class TunerTest {
+    private static final int POSITIONS = 3000;
+
+    private ExecutorService pool;
+
+    @BeforeEach
+    void startPool() {
+        pool = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void stopPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * 随机的棋型次数，结果按给定的分值和K算出的得分率，这样误差最小的分值是已知的
+     */
+    private static Tuner tuner(Weights initial, Weights truth, double scale, Random random, int[][] mine, int[][] others,
+                               float[] results) {
+        Tuner tuner = new Tuner(initial);
+        for (int i = 0; i < POSITIONS; i++) {
+            for (int p = 1; p < PatternTable.SIX; p++) {
+                //强的棋型少见
+                mine[i][p] = random.nextInt(12 - p);
+                others[i][p] = random.nextInt(12 - p);
+            }
+            results[i] = (float) sigmoid(scale * value(truth, mine[i], others[i]));
+            tuner.add(mine[i], others[i], results[i]);
+        }
+        tuner.prepare();
+        return tuner;
+    }
+
+    private static double value(Weights weights, int[] mine, int[] others) {
+        double value = 0;
+        for (int p = 0; p < PatternTable.PATTERNS; p++) {
+            if (Weights.isTunable(p)) {
+                value += (double) weights.get(p) * (mine[p] - others[p]);
+            }
+        }
+        return value;
+    }
+
+    private static double sigmoid(double x) {
+        return 1 / (1 + Math.exp(-x));
+    }
+
+    @Test
+    void errorAndGradientMatchDirectComputation() throws InterruptedException {
+        int[][] mine = new int[POSITIONS][PatternTable.PATTERNS];
+        int[][] others = new int[POSITIONS][PatternTable.PATTERNS];
+        float[] results = new float[POSITIONS];
+        Weights truth = Weights.DEFAULT;
+        Tuner tuner = tuner(Weights.DEFAULT, truth, 0.002, new Random(25), mine, others, results);
+        //分值偏离生成结果用的分值，误差和梯度都不为0
+        for (int j = 0; j < tuner.weights.length; j++) {
+            tuner.weights[j] *= 1 + 0.1 * (j % 3 - 1);
+        }
+        tuner.scale = 0.002;
+
+        double[] gradient = new double[tuner.weights.length];
+        double error = tuner.compute(pool, gradient);
+        int[] params = new int[tuner.weights.length];
+        for (int p = 1, j = 0; p < PatternTable.SIX; p++, j++) {
+            params[j] = p;
+        }
+        double expected = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            double value = 0;
+            for (int j = 0; j < params.length; j++) {
+                value += tuner.weights[j] * (mine[i][params[j]] - others[i][params[j]]);
+            }
+            double diff = sigmoid(tuner.scale * value) - results[i];
+            expected += diff * diff;
+        }
+        assertEquals(expected / POSITIONS, error, 1e-12);
+        assertTrue(error > 0);
+
+        //中心差分
+        for (int j = 0; j < tuner.weights.length; j++) {
+            double w = tuner.weights[j];
+            double h = Math.max(1e-3, w * 1e-4);
+            tuner.weights[j] = w + h;
+            double plus = tuner.compute(pool, null);
+            tuner.weights[j] = w - h;
+            double minus = tuner.compute(pool, null);
+            tuner.weights[j] = w;
+            double numeric = (plus - minus) / (2 * h);
+            assertEquals(numeric, gradient[j], 1e-6 * Math.abs(numeric) + 1e-12, Weights.nameOf(params[j]));
+        }
+    }
+
+    @Test
+    void tuningLowersTheError() throws InterruptedException {
+        int[][] mine = new int[POSITIONS][PatternTable.PATTERNS];
+        int[][] others = new int[POSITIONS][PatternTable.PATTERNS];
+        float[] results = new float[POSITIONS];
+        //结果按默认分值的两倍生成，从默认分值开始调
+        int[] doubled = Weights.DEFAULT.toArray();
+        for (int p = 0; p < PatternTable.PATTERNS; p++) {
+            doubled[p] *= 2;
+        }
+        Tuner tuner = tuner(Weights.DEFAULT, new Weights(doubled), 0.001, new Random(26), mine, others, results);
+        Weights tuned = tuner.tune(Weights.DEFAULT, 200, 0.02, 2);
+        double after = tuner.compute(pool, null);
+        //K不变，换回初始的分值
+        double[] fitted = tuner.weights.clone();
+        for (int j = 0; j < fitted.length; j++) {
+            tuner.weights[j] = Weights.DEFAULT.get(j + 1);
+        }
+        double before = tuner.compute(pool, null);
+        assertTrue(after < before * 0.5, before + " -> " + after);
+        for (int j = 0; j < fitted.length; j++) {
+            assertEquals(Math.round(fitted[j]), tuned.get(j + 1));
+        }
+        assertEquals(Weights.DEFAULT.get(Weights.CENTER), tuned.get(Weights.CENTER));
+    }
+}
@@ -0,0 +1,67 @@
+package aiSix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 估值参数文件的读写，不能调的项和取值范围
+ */
+class WeightsTest {
+    @Test
+    void writtenWeightsAreReadBack(@TempDir Path dir) throws IOException {
+        int[] values = Weights.DEFAULT.toArray();
+        for (int i = 0; i < Weights.COUNT; i++) {
+            values[i] = 7 * i + 3;
+        }
+        Weights weights = new Weights(values);
+        Path file = dir.resolve("tuned.weights");
+        weights.write(file);
+        assertEquals(weights, Weights.read(file));
+        assertEquals(weights.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void missingNamesKeepDefaults(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("partial.weights");
+        Files.write(file, Arrays.asList("# 只改活三", "HUO_THREE = 321"));
+        Weights weights = Weights.read(file);
+        int[] expected = Weights.DEFAULT.toArray();
+        expected[PatternTable.HUO_THREE] = 321;
+        assertEquals(new Weights(expected), weights);
+    }
+
+    @Test
+    void fixedValuesAndRangeAreEnforced() {
+        int[] values = Weights.DEFAULT.toArray();
+        values[PatternTable.NONE] = 5;
+        values[PatternTable.SIX] = 5;
+        values[PatternTable.MIAN_TWO] = -1;
+        values[PatternTable.HUO_FIVE] = Integer.MAX_VALUE;
+        Weights weights = new Weights(values);
+        assertEquals(0, weights.get(PatternTable.NONE));
+        assertEquals(Evaluate.SIX, weights.get(PatternTable.SIX));
+        assertEquals(0, weights.get(PatternTable.MIAN_TWO));
+        assertEquals(Weights.MAX_VALUE, weights.get(PatternTable.HUO_FIVE));
+        assertThrows(IllegalArgumentException.class, () -> new Weights(new int[Weights.COUNT - 1]));
+    }
+
+    @Test
+    void rejectsBadFiles(@TempDir Path dir) throws IOException {
+        Path unknown = dir.resolve("unknown.weights");
+        Files.write(unknown, Arrays.asList("HUO_SEVEN=1"));
+        assertThrows(IOException.class, () -> Weights.read(unknown));
+        Path notNumber = dir.resolve("text.weights");
+        Files.write(notNumber, Arrays.asList("HUO_THREE=many"));
+        assertThrows(IOException.class, () -> Weights.read(notNumber));
+        assertThrows(IOException.class, () -> Weights.read(dir.resolve("missing.weights")));
+    }
+}